@@ -0,0 +1,37 @@
+package jdepend.framework;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the full analysis of a corpus directory, from the directory
+ * scan to the package metrics, sequentially and in parallel.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class AnalyzeBenchmark {
+
+    @Param({"build/classes/java/main"})
+    private String corpus;
+
+    @Param({"1", "4"})
+    private int threads;
+
+    @Benchmark
+    public Collection<JavaPackage> analyze() throws IOException {
+        final JDepend jdepend = new JDepend();
+        jdepend.addDirectory(corpus);
+        jdepend.setThreads(threads);
+        return jdepend.analyze();
+    }
+}
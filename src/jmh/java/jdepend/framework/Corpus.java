@@ -0,0 +1,75 @@
+package jdepend.framework;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * The <code>Corpus</code> class prepares the inputs of the benchmarks.
+ */
+final class Corpus {
+
+    private Corpus() {
+    }
+
+    /**
+     * Creates a temporary JAR file holding the class files of a directory.
+     *
+     * @param directory Class file directory.
+     * @return JAR file, to be deleted by the caller.
+     * @throws IOException in case of I/O problems.
+     */
+    static File jar(final File directory) throws IOException {
+        final File jarFile = File.createTempFile("corpus", ".jar");
+        final List<Path> classFiles;
+        try (Stream<Path> paths = Files.walk(directory.toPath())) {
+            classFiles = paths.filter(path -> path.toString().endsWith(".class")).sorted().collect(Collectors.toList());
+        }
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jarFile))) {
+            for (final Path classFile : classFiles) {
+                out.putNextEntry(new ZipEntry(directory.toPath().relativize(classFile).toString().replace('\\', '/')));
+                out.write(Files.readAllBytes(classFile));
+                out.closeEntry();
+            }
+        }
+        return jarFile;
+    }
+
+    /**
+     * Creates a random package graph. Every package depends upon the
+     * specified number of packages; the graph contains cycles unless
+     * packages depend upon packages with higher numbers only.
+     *
+     * @param size Number of packages.
+     * @param efferents Number of efferents per package.
+     * @param acyclic <code>true</code> for a graph without cycles.
+     * @return Packages.
+     */
+    static List<JavaPackage> packageGraph(final int size, final int efferents, final boolean acyclic) {
+        final Random random = new Random(size);
+        final List<JavaPackage> packages = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            packages.add(new JavaPackage("p" + i));
+        }
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < efferents; j++) {
+                if (acyclic && i + 1 < size) {
+                    packages.get(i).dependsUpon(packages.get(i + 1 + random.nextInt(size - i - 1)));
+                } else if (!acyclic) {
+                    packages.get(i).dependsUpon(packages.get(random.nextInt(size)));
+                }
+            }
+        }
+        return Collections.unmodifiableList(packages);
+    }
+}
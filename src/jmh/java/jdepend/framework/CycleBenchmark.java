@@ -0,0 +1,63 @@
+package jdepend.framework;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures cycle detection on synthetic package graphs, for every package
+ * one at a time as the reports do, and for all packages at once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CycleBenchmark {
+
+    @Param({"1000", "10000"})
+    private int size;
+
+    @Param({"4"})
+    private int efferents;
+
+    @Param({"false", "true"})
+    private boolean acyclic;
+
+    private List<JavaPackage> packages;
+
+    @Setup
+    public void setUp() {
+        packages = Corpus.packageGraph(size, efferents, acyclic);
+    }
+
+    @Benchmark
+    public int collectCycle() {
+        int inCycle = 0;
+        for (final JavaPackage javaPackage : packages) {
+            if (javaPackage.collectCycle(new ArrayList<>())) {
+                inCycle++;
+            }
+        }
+        return inCycle;
+    }
+
+    @Benchmark
+    public int cycleAnalysis() {
+        final CycleAnalysis analysis = new CycleAnalysis(new PackageGraph(packages));
+        int inCycle = 0;
+        for (final JavaPackage javaPackage : packages) {
+            if (analysis.reachesCycle(javaPackage)) {
+                inCycle++;
+            }
+        }
+        return inCycle;
+    }
+}
@@ -0,0 +1,63 @@
+package jdepend.framework;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures parsing a single class file and the class files of a JAR file.
+ * The JAR file holds the class files of the corpus directory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ParserBenchmark {
+
+    @Param({"build/classes/java/main"})
+    private String corpus;
+
+    @Param({"FULL", "CONSTANT_POOL"})
+    private DependencyProfile profile;
+
+    private ClassFileParser parser;
+    private ByteBuffer classFile;
+    private File jarFile;
+    private JavaClassBuilder builder;
+
+    @Setup
+    public void setUp() throws IOException {
+        parser = new ClassFileParser();
+        parser.setDependencyProfile(profile);
+        classFile = ByteBuffer.wrap(Files.readAllBytes(new File(corpus, "jdepend/framework/JDepend.class").toPath()));
+        jarFile = Corpus.jar(new File(corpus));
+        builder = new JavaClassBuilder(parser, new FileManager());
+    }
+
+    @TearDown
+    public void tearDown() {
+        jarFile.delete();
+    }
+
+    @Benchmark
+    public JavaClass parseClassFile() throws IOException {
+        return parser.parse(classFile);
+    }
+
+    @Benchmark
+    public Collection<JavaClass> parseJarFile() throws IOException {
+        return builder.buildClasses(jarFile);
+    }
+}
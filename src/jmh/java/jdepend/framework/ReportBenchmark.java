@@ -0,0 +1,42 @@
+package jdepend.framework;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the text and XML reports of a corpus directory, including
+ * its analysis. The reports are written to a writer discarding them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ReportBenchmark {
+
+    @Param({"build/classes/java/main"})
+    private String corpus;
+
+    @Benchmark
+    public void textReport() throws IOException {
+        report(new jdepend.textui.JDepend(new PrintWriter(Writer.nullWriter())));
+    }
+
+    @Benchmark
+    public void xmlReport() throws IOException {
+        report(new jdepend.xmlui.JDepend(new PrintWriter(Writer.nullWriter())));
+    }
+
+    private void report(final jdepend.textui.JDepend jdepend) throws IOException {
+        jdepend.addDirectory(corpus);
+        jdepend.analyze();
+    }
+}
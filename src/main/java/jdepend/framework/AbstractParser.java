@@ -1,20 +1,31 @@
 package jdepend.framework;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * The <code>AbstractParser</code> class is the base class 
  * for classes capable of parsing files to create a 
  * <code>JavaClass</code> instance.
+ *
+ * <p>Listeners may be registered and the filter replaced while other
+ * threads are parsing. Listeners are notified on the parsing thread.
+ *
+ * <p>The package names of the classes parsed by one parser are interned
+ * in its <code>SymbolTable</code>, until a new one is started for the next
+ * build.
  * 
  * @author <b>Mike Clark</b>
  * @author Clarkware Consulting, Inc.
  */
 public abstract class AbstractParser {
 
-    private final List<ParserListener> parserListeners = new ArrayList<>();
-    private PackageFilter filter;
+    private final List<ParserListener> parserListeners = new CopyOnWriteArrayList<>();
+    private volatile SymbolTable symbols = new SymbolTable();
+    private volatile PackageFilter filter;
+    private volatile DependencyProfile dependencyProfile = DependencyProfile.FULL;
 
     public AbstractParser() {
         this(new PackageFilter());
@@ -35,6 +46,39 @@ public abstract class AbstractParser {
      */
     public abstract JavaClass parse(final InputStream inputStream) throws IOException;
 
+    /**
+     * Parses the remaining bytes of the specified buffer without changing its position.
+     * Registered parser listeners are informed that the resulting
+     * <code>JavaClass</code> was parsed.
+     *
+     * <p>The default implementation reads the buffer through
+     * <code>parse(InputStream)</code>. Parsers able to work on the buffer
+     * directly should override it.
+     *
+     * @throws IOException in case of I/O problems reading from {@code buffer}
+     */
+    public JavaClass parse(final ByteBuffer buffer) throws IOException {
+        final ByteBuffer source = buffer.duplicate();
+        if (source.hasArray()) {
+            return parse(new ByteArrayInputStream(
+                    source.array(), source.arrayOffset() + source.position(), source.remaining()));
+        }
+        final byte[] bytes = new byte[source.remaining()];
+        source.get(bytes);
+        return parse(new ByteArrayInputStream(bytes));
+    }
+
+    /**
+     * Parses the remaining bytes of the specified buffer, which were read
+     * from the file or archive entry of the specified name.
+     *
+     * @param name Path of the class file or name of the archive entry.
+     * @throws IOException in case of I/O problems reading from {@code buffer}
+     */
+    JavaClass parse(final String name, final ByteBuffer buffer) throws IOException {
+        return parse(buffer);
+    }
+
     /**
      * Informs registered parser listeners that the specified
      * <code>JavaClass</code> was parsed.
@@ -48,6 +92,14 @@ public abstract class AbstractParser {
     }
 
     protected PackageFilter getFilter() {
+        final PackageFilter current = filter;
+        if (current == null) {
+            return defaultFilter();
+        }
+        return current;
+    }
+
+    private synchronized PackageFilter defaultFilter() {
         if (filter == null) {
             setFilter(new PackageFilter());
         }
@@ -57,4 +109,33 @@ public abstract class AbstractParser {
     protected void setFilter(final PackageFilter filter) {
         this.filter = filter;
     }
+
+    /**
+     * Sets from which parts of a class file the dependencies are taken.
+     *
+     * @param dependencyProfile Dependency profile.
+     */
+    public void setDependencyProfile(final DependencyProfile dependencyProfile) {
+        this.dependencyProfile = dependencyProfile;
+    }
+
+    public DependencyProfile getDependencyProfile() {
+        return dependencyProfile;
+    }
+
+    /**
+     * @return The symbol table interning the package names of this parser.
+     */
+    SymbolTable getSymbolTable() {
+        return symbols;
+    }
+
+    /**
+     * Starts a new symbol table, so that the package names of an earlier
+     * build are released. Classes parsed before keep the packages of the
+     * old table. Must not be called while classes are being parsed.
+     */
+    void newSymbolTable() {
+        symbols = new SymbolTable();
+    }
 }
@@ -0,0 +1,346 @@
+package jdepend.framework;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * The <code>AnalysisCache</code> class keeps the parse results of class
+ * files and archives in a file, so that unchanged files are not parsed again
+ * by the next analysis.
+ *
+ * <p>Entries are keyed by the absolute path of a file and are valid as long
+ * as the size and the modification time of the file are unchanged.
+ * With content hashing enabled, an entry also stays valid if only the
+ * modification time changed but the SHA-256 hash of the contents did not,
+ * for example after a clean build.
+ *
+ * <p>The cache is discarded as a whole when the settings affecting the parse
+ * results, such as the package filter, differ from those it was written with.
+ *
+ * <p>The cache is not thread-safe. <code>JavaClassBuilder</code> uses it on
+ * the thread calling <code>build()</code> only.
+ */
+public class AnalysisCache {
+
+    private static final int MAGIC = 0x4A444143;
+    private static final int VERSION = 2;
+    private static final String HASH_ALGORITHM = "SHA-256";
+
+    private final File file;
+    private final Map<String, Entry> entries = new HashMap<>();
+    private boolean contentHashing;
+    private boolean loaded;
+    private String fingerprint = "";
+    private int hits;
+    private int misses;
+
+    /**
+     * Constructs an <code>AnalysisCache</code> stored in the specified file.
+     * The file is read on first use and need not exist.
+     *
+     * @param file Cache file.
+     */
+    public AnalysisCache(final File file) {
+        this.file = file;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Determines whether content hashes are used to validate entries of
+     * files whose modification time changed.
+     *
+     * @param contentHashing <code>true</code> to compare content hashes.
+     */
+    public void setContentHashing(final boolean contentHashing) {
+        this.contentHashing = contentHashing;
+    }
+
+    public boolean isContentHashing() {
+        return contentHashing;
+    }
+
+    /**
+     * @return Number of files found in the cache since it was created.
+     */
+    public int getHits() {
+        return hits;
+    }
+
+    /**
+     * @return Number of files not found in the cache since it was created.
+     */
+    public int getMisses() {
+        return misses;
+    }
+
+    /**
+     * Reads the cache file unless it was already read, and discards all
+     * entries if they were created with a different fingerprint.
+     * A missing, outdated or corrupt cache file results in an empty cache.
+     *
+     * @param fingerprint Settings affecting the parse results.
+     */
+    void load(final String fingerprint) {
+        if (!loaded) {
+            loaded = true;
+            if (file.isFile()) {
+                try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                    read(in);
+                } catch (final IOException | RuntimeException e) {
+                    entries.clear();
+                }
+            }
+        }
+        if (!fingerprint.equals(this.fingerprint)) {
+            entries.clear();
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    /**
+     * Writes the cache file. Entries of files that no longer exist are dropped.
+     *
+     * @throws IOException if the cache file cannot be written.
+     */
+    public void save() throws IOException {
+        entries.values().removeIf(entry -> !new File(entry.path).exists());
+        final File directory = file.getAbsoluteFile().getParentFile();
+        if (directory != null) {
+            Files.createDirectories(directory.toPath());
+        }
+        final File temporary = File.createTempFile(file.getName(), ".tmp", directory);
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(temporary)))) {
+                write(out);
+            }
+            Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary.toPath());
+        }
+    }
+
+    /**
+     * Looks up the specified file.
+     *
+     * @param file Class file or archive.
+     * @return Entry of the file, with classes if the cached ones are still valid.
+     * @throws IOException if the file cannot be hashed.
+     */
+    Entry lookup(final File file) throws IOException {
+        final String path = file.getAbsolutePath();
+        final long size = file.length();
+        final long lastModified = file.lastModified();
+        final Entry cached = entries.get(path);
+        if (cached != null && cached.size == size && cached.lastModified == lastModified) {
+            hits++;
+            return cached;
+        }
+        final byte[] hash = contentHashing ? hash(file) : new byte[0];
+        if (cached != null && cached.size == size && hash.length > 0 && Arrays.equals(cached.hash, hash)) {
+            hits++;
+            final Entry renewed = new Entry(path, size, lastModified, hash, cached.classes);
+            entries.put(path, renewed);
+            return renewed;
+        }
+        misses++;
+        return new Entry(path, size, lastModified, hash, null);
+    }
+
+    /**
+     * Stores the classes parsed from the file of the specified entry.
+     *
+     * @param entry Entry returned by <code>lookup()</code>.
+     * @param javaClasses Classes parsed from the file.
+     */
+    void put(final Entry entry, final Collection<JavaClass> javaClasses) {
+        final List<CachedClass> classes = new ArrayList<>(javaClasses.size());
+        for (final JavaClass javaClass : javaClasses) {
+            classes.add(new CachedClass(javaClass));
+        }
+        entries.put(entry.path, new Entry(entry.path, entry.size, entry.lastModified, entry.hash, classes));
+    }
+
+    private static byte[] hash(final File file) throws IOException {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance(HASH_ALGORITHM);
+            try (InputStream in = new FileInputStream(file)) {
+                final byte[] buffer = new byte[8192];
+                int n;
+                while ((n = in.read(buffer)) > 0) {
+                    digest.update(buffer, 0, n);
+                }
+            }
+            return digest.digest();
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void read(final DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            return;
+        }
+        fingerprint = in.readUTF();
+        final int entryCount = in.readInt();
+        for (int i = 0; i < entryCount; i++) {
+            final String path = in.readUTF();
+            final long size = in.readLong();
+            final long lastModified = in.readLong();
+            final byte[] hash = new byte[in.readUnsignedByte()];
+            in.readFully(hash);
+            final int classCount = in.readInt();
+            final List<CachedClass> classes = new ArrayList<>(classCount);
+            for (int j = 0; j < classCount; j++) {
+                classes.add(CachedClass.read(in));
+            }
+            entries.put(path, new Entry(path, size, lastModified, hash, classes));
+        }
+    }
+
+    private void write(final DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeUTF(fingerprint);
+        out.writeInt(entries.size());
+        for (final Entry entry : entries.values()) {
+            out.writeUTF(entry.path);
+            out.writeLong(entry.size);
+            out.writeLong(entry.lastModified);
+            out.writeByte(entry.hash.length);
+            out.write(entry.hash);
+            out.writeInt(entry.classes.size());
+            for (final CachedClass javaClass : entry.classes) {
+                javaClass.write(out);
+            }
+        }
+    }
+
+    /**
+     * The <code>Entry</code> class holds the stamp of a file and
+     * the classes parsed from it.
+     */
+    static final class Entry {
+        private final String path;
+        private final long size;
+        private final long lastModified;
+        private final byte[] hash;
+        private final List<CachedClass> classes;
+
+        private Entry(
+                final String path,
+                final long size,
+                final long lastModified,
+                final byte[] hash,
+                final List<CachedClass> classes
+        ) {
+            this.path = path;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.hash = hash;
+            this.classes = classes;
+        }
+
+        boolean isValid() {
+            return classes != null;
+        }
+
+        /**
+         * @param symbols Symbol table providing the imported packages.
+         * @return New <code>JavaClass</code> instances for the cached classes.
+         */
+        Collection<JavaClass> getClasses(final SymbolTable symbols) {
+            final Collection<JavaClass> javaClasses = new ArrayList<>(classes.size());
+            for (final CachedClass cachedClass : classes) {
+                javaClasses.add(cachedClass.toJavaClass(symbols));
+            }
+            return javaClasses;
+        }
+    }
+
+    /**
+     * The <code>CachedClass</code> class holds the parse result of one class.
+     */
+    private static final class CachedClass {
+        private final String className;
+        private final String packageName;
+        private final boolean isAbstract;
+        private final String sourceFile;
+        private final String[] importedPackages;
+
+        CachedClass(final JavaClass javaClass) {
+            this(
+                    javaClass.getClassName(),
+                    javaClass.getPackageName(),
+                    javaClass.isAbstract(),
+                    javaClass.getSourceFile(),
+                    importedPackageNames(javaClass)
+            );
+        }
+
+        CachedClass(
+                final String className,
+                final String packageName,
+                final boolean isAbstract,
+                final String sourceFile,
+                final String[] importedPackages
+        ) {
+            this.className = className;
+            this.packageName = packageName;
+            this.isAbstract = isAbstract;
+            this.sourceFile = sourceFile;
+            this.importedPackages = importedPackages;
+        }
+
+        private static String[] importedPackageNames(final JavaClass javaClass) {
+            final Collection<JavaPackage> packages = javaClass.getImportedPackages();
+            final String[] names = new String[packages.size()];
+            int i = 0;
+            for (final JavaPackage javaPackage : packages) {
+                names[i++] = javaPackage.getName();
+            }
+            return names;
+        }
+
+        JavaClass toJavaClass(final SymbolTable symbols) {
+            final JavaClass javaClass = new JavaClass(className);
+            javaClass.setPackageName(symbols.getPackage(packageName).getName());
+            javaClass.isAbstract(isAbstract);
+            javaClass.setSourceFile(sourceFile);
+            for (final String importedPackage : importedPackages) {
+                javaClass.addImportedPackage(symbols.getPackage(importedPackage));
+            }
+            return javaClass;
+        }
+
+        static CachedClass read(final DataInputStream in) throws IOException {
+            final String className = in.readUTF();
+            final String packageName = in.readUTF();
+            final boolean isAbstract = in.readBoolean();
+            final String sourceFile = in.readUTF();
+            final String[] importedPackages = new String[in.readInt()];
+            for (int i = 0; i < importedPackages.length; i++) {
+                importedPackages[i] = in.readUTF();
+            }
+            return new CachedClass(className, packageName, isAbstract, sourceFile, importedPackages);
+        }
+
+        void write(final DataOutputStream out) throws IOException {
+            out.writeUTF(className);
+            out.writeUTF(packageName);
+            out.writeBoolean(isAbstract);
+            out.writeUTF(sourceFile);
+            out.writeInt(importedPackages.length);
+            for (final String importedPackage : importedPackages) {
+                out.writeUTF(importedPackage);
+            }
+        }
+    }
+}
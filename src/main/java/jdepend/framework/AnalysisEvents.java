@@ -0,0 +1,114 @@
+package jdepend.framework;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * The <code>AnalysisEvents</code> class holds the JDK Flight Recorder
+ * events of an analysis, in the category <code>JDepend</code>.
+ *
+ * <p>An event is created and timed for every piece of work, but its fields
+ * are only set and it is only committed if a recording wants it, so the
+ * events cost next to nothing while no recording is running. Reads and
+ * parses of single class files are only recorded from a default
+ * threshold of 10 ms on, which a recording may change, so that the slow
+ * ones stand out.
+ */
+final class AnalysisEvents {
+
+    private AnalysisEvents() {
+    }
+
+    @Name("jdepend.Scan")
+    @Label("Scan")
+    @Category("JDepend")
+    @Description("Scan of the registered directories for class files and archives; "
+            + "during a build, including the build of the files found")
+    @StackTrace(false)
+    static final class Scan extends Event {
+        @Label("Directories")
+        int directories;
+
+        @Label("Files")
+        int files;
+    }
+
+    @Name("jdepend.Archive")
+    @Label("Archive")
+    @Category("JDepend")
+    @Description("Build of the classes of an archive; in a parallel build, the enumeration of its entries")
+    @StackTrace(false)
+    static final class Archive extends Event {
+        @Label("Path")
+        String path;
+
+        @Label("Size")
+        @DataAmount
+        long size;
+
+        @Label("Memory-Mapped")
+        boolean memoryMapped;
+    }
+
+    @Name("jdepend.ClassRead")
+    @Label("Class Read")
+    @Category("JDepend")
+    @Description("Read of a class file or of an entry of an archive")
+    @Threshold("10 ms")
+    @StackTrace(false)
+    static final class ClassRead extends Event {
+        @Label("Path")
+        String path;
+
+        @Label("Entry")
+        String entry;
+
+        @Label("Size")
+        @DataAmount
+        long size;
+    }
+
+    @Name("jdepend.ClassParse")
+    @Label("Class Parse")
+    @Category("JDepend")
+    @Description("Parse of a class file")
+    @Threshold("10 ms")
+    @StackTrace(false)
+    static final class ClassParse extends Event {
+        @Label("Source")
+        @Description("Path of the class file or name of the archive entry, if known")
+        String source;
+
+        @Label("Class Name")
+        String className;
+
+        @Label("Size")
+        @DataAmount
+        long size;
+
+        @Label("Constant Pool Size")
+        int constantPoolSize;
+    }
+
+    @Name("jdepend.Cycles")
+    @Label("Cycle Analysis")
+    @Category("JDepend")
+    @Description("Search for the package dependency cycles of a package graph")
+    @StackTrace(false)
+    static final class Cycles extends Event {
+        @Label("Packages")
+        int packages;
+
+        @Label("Dependencies")
+        int dependencies;
+
+        @Label("Cycles")
+        int cycles;
+    }
+}
@@ -0,0 +1,248 @@
+package jdepend.framework;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * The <code>AnalysisStatistics</code> class is a snapshot of where an
+ * analysis spent its time: the wall and CPU time of every phase, the
+ * number of bytes read, of classes parsed and analyzed, of archive
+ * entries skipped and of class files which could not be parsed.
+ *
+ * <p>The time of a phase is summed over all threads which ran it, so in a
+ * parallel build the read and parse phases may take longer than the
+ * whole analysis. CPU time is measured only where the Java virtual
+ * machine supports it for the current thread; otherwise it is
+ * <code>0</code>.
+ */
+public final class AnalysisStatistics {
+
+    /**
+     * The <code>Phase</code> enumeration lists the phases of an analysis.
+     */
+    public enum Phase {
+
+        /** Finding the class files and archives in the registered directories. */
+        SCAN,
+
+        /** Reading class files and archive entries. */
+        READ,
+
+        /** Parsing class files. */
+        PARSE,
+
+        /** Adding the parsed classes to their packages. */
+        AGGREGATE,
+
+        /** Finding the package dependency cycles. */
+        CYCLES,
+
+        /** Writing the report, including the cycle analysis done for it. */
+        REPORT
+    }
+
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private final long[] wallNanos;
+    private final long[] cpuNanos;
+    private final long analysisNanos;
+    private final long bytesRead;
+    private final long classesParsed;
+    private final long classesAnalyzed;
+    private final long entriesSkipped;
+    private final long parseFailures;
+
+    private AnalysisStatistics(final Recorder recorder) {
+        final Phase[] phases = Phase.values();
+        wallNanos = new long[phases.length];
+        cpuNanos = new long[phases.length];
+        for (final Phase phase : phases) {
+            wallNanos[phase.ordinal()] = recorder.wallNanos[phase.ordinal()].sum();
+            cpuNanos[phase.ordinal()] = recorder.cpuNanos[phase.ordinal()].sum();
+        }
+        analysisNanos = recorder.analysisNanos.sum();
+        bytesRead = recorder.bytesRead.sum();
+        classesParsed = recorder.classesParsed.sum();
+        classesAnalyzed = recorder.classesAnalyzed.sum();
+        entriesSkipped = recorder.entriesSkipped.sum();
+        parseFailures = recorder.parseFailures.sum();
+    }
+
+    /**
+     * Returns the wall time of a phase, summed over all threads which ran it.
+     *
+     * @param phase Phase.
+     * @return Wall time in nanoseconds.
+     */
+    public long getWallNanos(final Phase phase) {
+        return wallNanos[phase.ordinal()];
+    }
+
+    /**
+     * Returns the CPU time of a phase, summed over all threads which ran it.
+     *
+     * @param phase Phase.
+     * @return CPU time in nanoseconds.
+     */
+    public long getCpuNanos(final Phase phase) {
+        return cpuNanos[phase.ordinal()];
+    }
+
+    /**
+     * Returns the elapsed time of the analysis of the registered
+     * directories, from the scan to the last class added to its package.
+     *
+     * @return Elapsed time in nanoseconds.
+     */
+    public long getAnalysisNanos() {
+        return analysisNanos;
+    }
+
+    /**
+     * Returns the number of bytes read from class files and archive entries,
+     * after decompression.
+     *
+     * @return Number of bytes.
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    public long getClassesParsed() {
+        return classesParsed;
+    }
+
+    /**
+     * Returns the number of classes added to their packages, including
+     * those taken from the cache of parse results.
+     *
+     * @return Number of classes.
+     */
+    public long getClassesAnalyzed() {
+        return classesAnalyzed;
+    }
+
+    /**
+     * Returns the number of analyzed classes per second of analysis.
+     *
+     * @return Classes per second, or <code>0</code> if nothing was analyzed.
+     */
+    public double getClassesPerSecond() {
+        return analysisNanos > 0 ? classesAnalyzed * NANOS_PER_SECOND / analysisNanos : 0;
+    }
+
+    /**
+     * Returns the number of class files in archives which were not read,
+     * as their path tells that their package is filtered.
+     *
+     * @return Number of archive entries.
+     */
+    public long getEntriesSkipped() {
+        return entriesSkipped;
+    }
+
+    /**
+     * Returns the number of class files which could not be parsed.
+     *
+     * @return Number of class files.
+     */
+    public long getParseFailures() {
+        return parseFailures;
+    }
+
+    @Override
+    public String toString() {
+        return "AnalysisStatistics[analysisNanos=" + analysisNanos
+                + ", bytesRead=" + bytesRead
+                + ", classesParsed=" + classesParsed
+                + ", classesAnalyzed=" + classesAnalyzed
+                + ", entriesSkipped=" + entriesSkipped
+                + ", parseFailures=" + parseFailures + "]";
+    }
+
+    /**
+     * The <code>Recorder</code> class collects the statistics of an
+     * analysis. It may be updated from any thread.
+     */
+    static final class Recorder {
+        private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+        private final LongAdder[] wallNanos = newAdders();
+        private final LongAdder[] cpuNanos = newAdders();
+        private final LongAdder analysisNanos = new LongAdder();
+        private final LongAdder bytesRead = new LongAdder();
+        private final LongAdder classesParsed = new LongAdder();
+        private final LongAdder classesAnalyzed = new LongAdder();
+        private final LongAdder entriesSkipped = new LongAdder();
+        private final LongAdder parseFailures = new LongAdder();
+        private final boolean measureCpuTime = THREADS.isCurrentThreadCpuTimeSupported();
+
+        private static LongAdder[] newAdders() {
+            final LongAdder[] adders = new LongAdder[Phase.values().length];
+            for (int i = 0; i < adders.length; i++) {
+                adders[i] = new LongAdder();
+            }
+            return adders;
+        }
+
+        /**
+         * Returns the CPU time of the current thread, or <code>0</code> if
+         * it cannot be measured.
+         */
+        long cpuTime() {
+            return measureCpuTime ? Math.max(0, THREADS.getCurrentThreadCpuTime()) : 0;
+        }
+
+        /**
+         * Adds the time from the specified start times until now to a phase.
+         *
+         * @param phase Phase.
+         * @param wallStart Start time, as returned by <code>System.nanoTime()</code>.
+         * @param cpuStart Start CPU time, as returned by <code>cpuTime()</code>.
+         */
+        void add(final Phase phase, final long wallStart, final long cpuStart) {
+            wallNanos[phase.ordinal()].add(System.nanoTime() - wallStart);
+            cpuNanos[phase.ordinal()].add(Math.max(0, cpuTime() - cpuStart));
+        }
+
+        <T> T measure(final Phase phase, final Supplier<T> work) {
+            final long wallStart = System.nanoTime();
+            final long cpuStart = cpuTime();
+            try {
+                return work.get();
+            } finally {
+                add(phase, wallStart, cpuStart);
+            }
+        }
+
+        void addAnalysis(final long wallStart) {
+            analysisNanos.add(System.nanoTime() - wallStart);
+        }
+
+        void addBytesRead(final long bytes) {
+            bytesRead.add(bytes);
+        }
+
+        void addClassParsed() {
+            classesParsed.increment();
+        }
+
+        void addClassAnalyzed() {
+            classesAnalyzed.increment();
+        }
+
+        void addEntrySkipped() {
+            entriesSkipped.increment();
+        }
+
+        void addParseFailure() {
+            parseFailures.increment();
+        }
+
+        AnalysisStatistics snapshot() {
+            return new AnalysisStatistics(this);
+        }
+    }
+}
@@ -1,10 +1,12 @@
 package jdepend.framework;
 
+import java.nio.ByteBuffer;
+
 class AttributeInfo {
     final String name;
-    final byte[] value;
+    final ByteBuffer value;
 
-    AttributeInfo(final String name, final byte[] value) {
+    AttributeInfo(final String name, final ByteBuffer value) {
         this.name = name;
         this.value = value;
     }
@@ -13,7 +15,7 @@ class AttributeInfo {
         return this.name;
     }
 
-    public byte[] getValue() {
+    public ByteBuffer getValue() {
         return this.value;
     }
 }
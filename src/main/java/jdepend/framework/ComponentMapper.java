@@ -0,0 +1,97 @@
+package jdepend.framework;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The <code>ComponentMapper</code> class maps package names to the
+ * components they belong to.
+ *
+ * <p>A component is a package name prefix, and a package belongs to it
+ * if its name continues after the prefix with a dot: the component
+ * <code>com.foo</code> contains <code>com.foo.bar</code>, but not
+ * <code>com.foobar</code>. Components may be nested; a package belongs
+ * to the longest component containing it.
+ *
+ * <p>A <code>*</code> in a component stands for exactly one segment of a
+ * package name, and the component is then named after the segments it
+ * matched: with the component <code>com.*.api</code>, the package
+ * <code>com.acme.api.impl</code> belongs to the component
+ * <code>com.acme.api</code>. Where a literal segment and a wildcard match
+ * equally long, the literal segment wins.
+ *
+ * <p>The components are compiled into a trie of package name segments,
+ * so a lookup takes time proportional to the number of segments of the
+ * package name.
+ */
+class ComponentMapper {
+
+    private static final String WILDCARD = "*";
+
+    private final Node root = new Node();
+
+    /**
+     * @param components Component names.
+     */
+    ComponentMapper(final Collection<String> components) {
+        for (final String component : components) {
+            Node node = root;
+            for (final String segment : component.split("\\.")) {
+                node = node.child(segment);
+            }
+            node.isComponent = node != root;
+        }
+    }
+
+    /**
+     * Returns the name of the component the specified package belongs to.
+     *
+     * @param packageName Package name.
+     * @return Component name, or the package name if it belongs to no component.
+     */
+    String toComponent(final String packageName) {
+        final int end = longestMatch(root, packageName, 0);
+        return end < 0 ? packageName : packageName.substring(0, end);
+    }
+
+    /**
+     * Returns the end of the longest component of the package name whose
+     * segments from the specified position on match the subtree of the
+     * specified node, or <code>-1</code> if there is none.
+     */
+    private int longestMatch(final Node node, final String packageName, final int from) {
+        final int end = packageName.indexOf('.', from);
+        if (end < 0) {
+            // A component must be followed by another segment
+            return -1;
+        }
+        int best = -1;
+        for (final Node next : new Node[] {node.children.get(packageName.substring(from, end)), node.wildcard}) {
+            if (next != null) {
+                final int deeper = longestMatch(next, packageName, end + 1);
+                final int match = deeper >= 0 ? deeper : next.isComponent ? end : -1;
+                if (match > best) {
+                    best = match;
+                }
+            }
+        }
+        return best;
+    }
+
+    private static final class Node {
+        private final Map<String, Node> children = new HashMap<>();
+        private Node wildcard;
+        private boolean isComponent;
+
+        Node child(final String segment) {
+            if (WILDCARD.equals(segment)) {
+                if (wildcard == null) {
+                    wildcard = new Node();
+                }
+                return wildcard;
+            }
+            return children.computeIfAbsent(segment, key -> new Node());
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package jdepend.framework;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static jdepend.framework.ConstantPoolTags.*;
+
+/**
+ * The <code>ConstantPool</code> class is a lazily decoded view of the
+ * constant pool of a class file.
+ *
+ * <p>Parsing the pool only records the tag and the offset of every entry.
+ * Entries are decoded from the class file buffer when they are requested,
+ * and <code>CONSTANT_Utf8</code> entries are turned into strings only on
+ * the first call of <code>toUtf8()</code>.
+ */
+class ConstantPool {
+
+    private final ByteBuffer buffer;
+    private final byte[] tags;
+    private final int[] offsets;
+    private final String[] strings;
+
+    private ConstantPool(final ByteBuffer buffer, final byte[] tags, final int[] offsets) {
+        this.buffer = buffer;
+        this.tags = tags;
+        this.offsets = offsets;
+        this.strings = new String[tags.length];
+    }
+
+    /**
+     * Parses the constant pool starting at the current position of the
+     * specified buffer, and moves the position past it.
+     *
+     * @param in Class file buffer.
+     * @return Constant pool.
+     * @throws IOException if the pool contains an unknown constant.
+     */
+    static ConstantPool parse(final ByteBuffer in) throws IOException {
+        final int constantPoolSize = in.getShort() & 0xFFFF;
+        final byte[] tags = new byte[constantPoolSize];
+        final int[] offsets = new int[constantPoolSize];
+
+        for (int i = 1; i < constantPoolSize; i++) {
+            final byte tag = in.get();
+            tags[i] = tag;
+            offsets[i] = in.position();
+            in.position(in.position() + getValueSize(tag, in));
+            if (isDoubleSizeEntry(tag)) {
+                i++;
+            }
+        }
+
+        return new ConstantPool(in, tags, offsets);
+    }
+
+    private static int getValueSize(final byte tag, final ByteBuffer in) throws IOException {
+        switch (tag) {
+        case CONSTANT_CLASS:
+        case CONSTANT_STRING:
+        case CONSTANT_METHOD_TYPE:
+            return 2;
+        case CONSTANT_METHOD_HANDLE:
+            return 3;
+        case CONSTANT_FIELD:
+        case CONSTANT_METHOD:
+        case CONSTANT_INTERFACEMETHOD:
+        case CONSTANT_NAMEANDTYPE:
+        case CONSTANT_INVOKEDYNAMIC:
+        case CONSTANT_INTEGER:
+        case CONSTANT_FLOAT:
+            return 4;
+        case CONSTANT_LONG:
+        case CONSTANT_DOUBLE:
+            return 8;
+        case CONSTANT_UTF8:
+            return 2 + (in.getShort(in.position()) & 0xFFFF);
+        default:
+            throw new IOException("Unknown constant: " + tag);
+        }
+    }
+
+    static boolean isDoubleSizeEntry(final int tag) {
+        return tag == CONSTANT_DOUBLE || tag == CONSTANT_LONG;
+    }
+
+    /**
+     * @return The number of slots of the pool, including the unused slot 0.
+     */
+    int size() {
+        return tags.length;
+    }
+
+    /**
+     * @return The tag of the entry, or <code>0</code> for an unused slot.
+     */
+    int getTag(final int entryIndex) throws IOException {
+        checkIndex(entryIndex);
+        return tags[entryIndex];
+    }
+
+    /**
+     * Returns the first index stored in an entry, for example the name index
+     * of a <code>CONSTANT_Class</code> entry.
+     */
+    int getNameIndex(final int entryIndex) throws IOException {
+        checkIndex(entryIndex);
+        return buffer.getShort(offsets[entryIndex]) & 0xFFFF;
+    }
+
+    String toUtf8(final int entryIndex) throws IOException {
+        checkUtf8(entryIndex);
+        String s = strings[entryIndex];
+        if (s == null) {
+            final int offset = offsets[entryIndex];
+            s = decodeUtf8(buffer, offset + 2, buffer.getShort(offset) & 0xFFFF);
+            strings[entryIndex] = s;
+        }
+        return s;
+    }
+
+    /**
+     * @return The offset of the bytes of a <code>CONSTANT_Utf8</code> entry in the class file buffer.
+     */
+    int getUtf8Offset(final int entryIndex) throws IOException {
+        checkUtf8(entryIndex);
+        return offsets[entryIndex] + 2;
+    }
+
+    /**
+     * @return The number of bytes of a <code>CONSTANT_Utf8</code> entry.
+     */
+    int getUtf8Length(final int entryIndex) throws IOException {
+        checkUtf8(entryIndex);
+        return buffer.getShort(offsets[entryIndex]) & 0xFFFF;
+    }
+
+    /**
+     * Decodes the modified UTF-8 encoding used by class files.
+     *
+     * @see <a href="https://docs.oracle.com/javase/specs/jvms/se14/jvms14.pdf">The Java Virtual Machine Specification,
+     *      4.4.7 The CONSTANT_Utf8_info Structure</a>
+     */
+    static String decodeUtf8(final ByteBuffer buffer, final int offset, final int length) throws IOException {
+        final char[] chars = new char[length];
+        int count = 0;
+        int i = offset;
+        final int end = offset + length;
+        while (i < end) {
+            final int b = buffer.get(i) & 0xFF;
+            if (b < 0x80) {
+                chars[count++] = (char) b;
+                i++;
+            } else if ((b & 0xE0) == 0xC0 && i + 1 < end) {
+                chars[count++] = (char) ((b & 0x1F) << 6 | continuation(buffer, i + 1));
+                i += 2;
+            } else if ((b & 0xF0) == 0xE0 && i + 2 < end) {
+                chars[count++] = (char) ((b & 0x0F) << 12 | continuation(buffer, i + 1) << 6
+                        | continuation(buffer, i + 2));
+                i += 3;
+            } else {
+                throw new IOException("Malformed UTF8 constant at offset " + i);
+            }
+        }
+        return new String(chars, 0, count);
+    }
+
+    private static int continuation(final ByteBuffer buffer, final int index) throws IOException {
+        final int b = buffer.get(index) & 0xFF;
+        if ((b & 0xC0) != 0x80) {
+            throw new IOException("Malformed UTF8 constant at offset " + index);
+        }
+        return b & 0x3F;
+    }
+
+    private void checkUtf8(final int entryIndex) throws IOException {
+        checkIndex(entryIndex);
+        if (tags[entryIndex] != CONSTANT_UTF8) {
+            throw new IOException("Constant pool entry is not a UTF8 type: " + entryIndex);
+        }
+    }
+
+    private void checkIndex(final int entryIndex) throws IOException {
+        if (entryIndex < 0 || entryIndex >= tags.length) {
+            throw new IOException("Illegal constant pool index : " + entryIndex);
+        }
+    }
+
+    /**
+     * Returns a string representation of the specified entry.
+     *
+     * @return String representation.
+     */
+    String toString(final int entryIndex) throws IOException {
+        final int tag = getTag(entryIndex);
+        final int offset = offsets[entryIndex];
+        final StringBuilder s = new StringBuilder();
+        s.append("tag: ").append(tag);
+        switch (tag) {
+        case CONSTANT_CLASS:
+        case CONSTANT_STRING:
+        case CONSTANT_METHOD_TYPE:
+            s.append(" nameIndex: ").append(getNameIndex(entryIndex));
+            break;
+        case CONSTANT_FIELD:
+        case CONSTANT_METHOD:
+        case CONSTANT_INTERFACEMETHOD:
+        case CONSTANT_NAMEANDTYPE:
+        case CONSTANT_INVOKEDYNAMIC:
+            s.append(" nameIndex: ").append(getNameIndex(entryIndex));
+            s.append(" typeIndex: ").append(buffer.getShort(offset + 2) & 0xFFFF);
+            break;
+        case CONSTANT_METHOD_HANDLE:
+            s.append(" nameIndex: ").append(buffer.get(offset));
+            s.append(" typeIndex: ").append(buffer.getShort(offset + 1) & 0xFFFF);
+            break;
+        case CONSTANT_INTEGER:
+            s.append(" value: ").append(buffer.getInt(offset));
+            break;
+        case CONSTANT_FLOAT:
+            s.append(" value: ").append(buffer.getFloat(offset));
+            break;
+        case CONSTANT_LONG:
+            s.append(" value: ").append(buffer.getLong(offset));
+            break;
+        case CONSTANT_DOUBLE:
+            s.append(" value: ").append(buffer.getDouble(offset));
+            break;
+        case CONSTANT_UTF8:
+            s.append(" value: ").append(toUtf8(entryIndex));
+            break;
+        default:
+            break;
+        }
+        return s.toString();
+    }
+}
@@ -0,0 +1,249 @@
+package jdepend.framework;
+
+import java.util.*;
+
+/**
+ * The <code>CycleAnalysis</code> class finds the package dependency
+ * cycles of a package graph in one pass.
+ *
+ * <p>The strongly connected components of the graph formed by the
+ * packages and all packages reachable through their efferents are
+ * computed on a <code>PackageGraph</code> with an iterative version of
+ * Tarjan's algorithm, in time linear in the number of packages and
+ * dependencies and without recursion, so deep graphs cannot overflow
+ * the stack.
+ * A package is in a cycle if its component has more than one member.
+ *
+ * <p>The analysis is a snapshot: it does not reflect dependencies added
+ * to the packages after it was created.
+ *
+ * @see <a href="https://doi.org/10.1137/0201010">R. Tarjan, Depth-first search and linear graph algorithms</a>
+ */
+public class CycleAnalysis {
+
+    private final PackageGraph graph;
+    private final int[] offsets;
+    private final int[] successors;
+    private final int[] component;
+    private final List<List<JavaPackage>> components = new ArrayList<>();
+    private final boolean[] reachesCycle;
+
+    /**
+     * Analyzes the specified packages and all packages they depend upon.
+     *
+     * @param packages Packages.
+     */
+    public CycleAnalysis(final Collection<JavaPackage> packages) {
+        this(new PackageGraph(packages));
+    }
+
+    /**
+     * Analyzes the packages of the specified graph.
+     *
+     * @param graph Package graph.
+     */
+    public CycleAnalysis(final PackageGraph graph) {
+        final AnalysisEvents.Cycles event = new AnalysisEvents.Cycles();
+        event.begin();
+        this.graph = graph;
+        offsets = graph.efferentOffsets();
+        successors = graph.efferentTargets();
+        component = new int[graph.size()];
+
+        final List<int[]> members = findComponents();
+        reachesCycle = new boolean[members.size()];
+        for (int c = 0; c < members.size(); c++) {
+            final int[] componentNodes = members.get(c);
+            boolean reaches = componentNodes.length > 1;
+            for (int n = 0; n < componentNodes.length && !reaches; n++) {
+                for (int edge = offsets[componentNodes[n]]; edge < offsets[componentNodes[n] + 1]; edge++) {
+                    if (reachesCycle[component[successors[edge]]]) {
+                        reaches = true;
+                        break;
+                    }
+                }
+            }
+            reachesCycle[c] = reaches;
+            final List<JavaPackage> componentPackages = new ArrayList<>(componentNodes.length);
+            for (final int node : componentNodes) {
+                componentPackages.add(graph.getPackage(node));
+            }
+            components.add(Collections.unmodifiableList(componentPackages));
+        }
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.packages = graph.size();
+            event.dependencies = successors.length;
+            event.cycles = getCycles().size();
+            event.commit();
+        }
+    }
+
+    /**
+     * Computes the strongly connected components. Components are found in
+     * reverse topological order: every component is found after all
+     * components it depends upon.
+     */
+    private List<int[]> findComponents() {
+        final int n = graph.size();
+        final int[] index = new int[n];
+        final int[] lowLink = new int[n];
+        final boolean[] onStack = new boolean[n];
+        final int[] stack = new int[n];
+        final int[] callStack = new int[n];
+        final int[] nextEdge = new int[n];
+        final List<int[]> result = new ArrayList<>();
+        Arrays.fill(index, -1);
+        int stackSize = 0;
+        int nextIndex = 0;
+
+        for (int root = 0; root < n; root++) {
+            if (index[root] >= 0) {
+                continue;
+            }
+            int depth = 0;
+            callStack[depth++] = root;
+            index[root] = nextIndex;
+            lowLink[root] = nextIndex++;
+            stack[stackSize++] = root;
+            onStack[root] = true;
+
+            while (depth > 0) {
+                final int node = callStack[depth - 1];
+                if (offsets[node] + nextEdge[node] < offsets[node + 1]) {
+                    final int successor = successors[offsets[node] + nextEdge[node]++];
+                    if (index[successor] < 0) {
+                        index[successor] = nextIndex;
+                        lowLink[successor] = nextIndex++;
+                        stack[stackSize++] = successor;
+                        onStack[successor] = true;
+                        callStack[depth++] = successor;
+                    } else if (onStack[successor]) {
+                        lowLink[node] = Math.min(lowLink[node], index[successor]);
+                    }
+                    continue;
+                }
+                depth--;
+                if (depth > 0) {
+                    final int caller = callStack[depth - 1];
+                    lowLink[caller] = Math.min(lowLink[caller], lowLink[node]);
+                }
+                if (lowLink[node] == index[node]) {
+                    int start = stackSize;
+                    do {
+                        start--;
+                        onStack[stack[start]] = false;
+                        component[stack[start]] = result.size();
+                    } while (stack[start] != node);
+                    result.add(Arrays.copyOfRange(stack, start, stackSize));
+                    stackSize = start;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Indicates whether any of the analyzed packages is in a cycle.
+     *
+     * @return <code>true</code> if a cycle exists.
+     */
+    public boolean containsCycles() {
+        for (final List<JavaPackage> members : components) {
+            if (members.size() > 1) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Indicates whether the specified package is a member of a cycle.
+     *
+     * @param javaPackage Analyzed package.
+     * @return <code>true</code> if the package is in a cycle.
+     */
+    public boolean isInCycle(final JavaPackage javaPackage) {
+        final int id = graph.indexOf(javaPackage);
+        return id >= 0 && components.get(component[id]).size() > 1;
+    }
+
+    /**
+     * Indicates whether a cycle can be reached from the specified package,
+     * either because the package is in a cycle or because it depends upon
+     * such a package. This is what <code>JavaPackage.containsCycle()</code>
+     * reports.
+     *
+     * @param javaPackage Analyzed package.
+     * @return <code>true</code> if a cycle is reachable.
+     */
+    public boolean reachesCycle(final JavaPackage javaPackage) {
+        final int id = graph.indexOf(javaPackage);
+        return id >= 0 && reachesCycle[component[id]];
+    }
+
+    /**
+     * Returns the members of the cycle the specified package is in, which
+     * are all packages of its strongly connected component.
+     *
+     * @param javaPackage Analyzed package.
+     * @return Cycle members, or an empty list if the package is not in a cycle.
+     */
+    public List<JavaPackage> getCycleMembers(final JavaPackage javaPackage) {
+        if (!isInCycle(javaPackage)) {
+            return Collections.emptyList();
+        }
+        return components.get(component[graph.indexOf(javaPackage)]);
+    }
+
+    /**
+     * Returns the strongly connected components with more than one member.
+     * Every component is listed after the components it depends upon.
+     *
+     * @return Cycles.
+     */
+    public List<List<JavaPackage>> getCycles() {
+        final List<List<JavaPackage>> cycles = new ArrayList<>();
+        for (final List<JavaPackage> members : components) {
+            if (members.size() > 1) {
+                cycles.add(members);
+            }
+        }
+        return cycles;
+    }
+
+    /**
+     * Returns the path to the first cycle reachable from the specified
+     * package, ending with the package that closes the cycle. The path is
+     * the one <code>JavaPackage.collectCycle()</code> reports: at every step
+     * it follows the first efferent that is already on the path or from
+     * which a cycle can be reached.
+     *
+     * @param javaPackage Analyzed package.
+     * @return Path, or an empty list if no cycle is reachable.
+     */
+    public List<JavaPackage> getCyclePath(final JavaPackage javaPackage) {
+        if (!reachesCycle(javaPackage)) {
+            return Collections.emptyList();
+        }
+        final List<JavaPackage> path = new ArrayList<>();
+        final boolean[] onPath = new boolean[graph.size()];
+        int node = graph.indexOf(javaPackage);
+        while (!onPath[node]) {
+            onPath[node] = true;
+            path.add(graph.getPackage(node));
+            int next = -1;
+            for (int edge = offsets[node]; edge < offsets[node + 1]; edge++) {
+                final int successor = successors[edge];
+                if (onPath[successor] || reachesCycle[component[successor]]) {
+                    next = successor;
+                    break;
+                }
+            }
+            node = next;
+        }
+        path.add(graph.getPackage(node));
+        return path;
+    }
+}
@@ -0,0 +1,238 @@
+package jdepend.framework;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The <code>CycleEnumerator</code> class lists the elementary package
+ * dependency cycles of a package graph, that is the cycles in which no
+ * package occurs twice.
+ *
+ * <p>Cycles are found with Johnson's algorithm within every strongly
+ * connected component and are passed to a <code>CycleListener</code> as
+ * soon as they are found. Every cycle is reported once, starting with its
+ * package whose name sorts first.
+ *
+ * <p>The number of elementary cycles can grow exponentially with the
+ * number of dependencies, so the enumeration can be limited by the number
+ * of cycles, by the number of packages per cycle and by time.
+ *
+ * @see <a href="https://doi.org/10.1137/0204007">D. B. Johnson, Finding all the elementary circuits of a directed graph</a>
+ */
+public class CycleEnumerator {
+
+    private static final int CLOCK_CHECK_INTERVAL = 1024;
+
+    private final Collection<JavaPackage> packages;
+    private int maxCycles = Integer.MAX_VALUE;
+    private int maxLength = Integer.MAX_VALUE;
+    private long timeoutNanos = Long.MAX_VALUE;
+
+    /**
+     * Constructs a <code>CycleEnumerator</code> for the specified packages
+     * and all packages they depend upon.
+     *
+     * @param packages Packages.
+     */
+    public CycleEnumerator(final Collection<JavaPackage> packages) {
+        this.packages = packages;
+    }
+
+    /**
+     * Sets the number of cycles after which the enumeration stops.
+     *
+     * @param maxCycles Maximum number of reported cycles.
+     */
+    public void setMaxCycles(final int maxCycles) {
+        this.maxCycles = Math.max(0, maxCycles);
+    }
+
+    /**
+     * Sets the maximum number of packages of a reported cycle.
+     * Longer cycles are skipped.
+     *
+     * @param maxLength Maximum cycle length, at least <code>2</code>.
+     */
+    public void setMaxLength(final int maxLength) {
+        this.maxLength = Math.max(2, maxLength);
+    }
+
+    /**
+     * Sets the time after which the enumeration stops.
+     *
+     * @param timeout Timeout.
+     * @param unit Unit of the timeout.
+     */
+    public void setTimeout(final long timeout, final TimeUnit unit) {
+        this.timeoutNanos = unit.toNanos(timeout);
+    }
+
+    /**
+     * Enumerates the elementary cycles.
+     *
+     * @param listener Listener notified of every cycle.
+     * @return <code>true</code> if all cycles (up to the maximum length) were
+     *         reported; <code>false</code> if the cycle count limit or the
+     *         timeout stopped the enumeration.
+     */
+    public boolean enumerate(final CycleListener listener) {
+        final Search search = new Search(listener);
+        for (final List<JavaPackage> component : new CycleAnalysis(packages).getCycles()) {
+            if (!search.enumerate(component)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The <code>Search</code> class holds the state of one enumeration.
+     * The recursive procedure of Johnson's algorithm is run with an
+     * explicit stack, so long cycles cannot overflow the thread stack.
+     */
+    private final class Search {
+        private final CycleListener listener;
+        private final long startTime;
+        private int cycles;
+        private int steps;
+
+        private int[][] successors;
+        private boolean[] blocked;
+        private List<Set<Integer>> blockedBy;
+        private int start;
+
+        Search(final CycleListener listener) {
+            this.listener = listener;
+            this.startTime = System.nanoTime();
+        }
+
+        /**
+         * Enumerates the cycles of one strongly connected component.
+         * Packages are numbered by name, and the cycles through package
+         * <code>s</code> are searched among the packages numbered
+         * <code>s</code> or higher.
+         */
+        boolean enumerate(final List<JavaPackage> component) {
+            final List<JavaPackage> nodes = new ArrayList<>(component);
+            nodes.sort(JavaPackage.byName);
+            final Map<JavaPackage, Integer> ids = new HashMap<>();
+            for (final JavaPackage node : nodes) {
+                ids.put(node, ids.size());
+            }
+            successors = new int[nodes.size()][];
+            for (int node = 0; node < nodes.size(); node++) {
+                final List<Integer> targets = new ArrayList<>();
+                for (final JavaPackage efferent : nodes.get(node).getEfferents()) {
+                    final Integer target = ids.get(efferent);
+                    if (target != null) {
+                        targets.add(target);
+                    }
+                }
+                successors[node] = targets.stream().mapToInt(Integer::intValue).toArray();
+            }
+            blocked = new boolean[nodes.size()];
+            blockedBy = new ArrayList<>();
+            for (int node = 0; node < nodes.size(); node++) {
+                blockedBy.add(new HashSet<>());
+            }
+
+            for (start = 0; start < nodes.size(); start++) {
+                for (int node = start; node < nodes.size(); node++) {
+                    blocked[node] = false;
+                    blockedBy.get(node).clear();
+                }
+                if (!circuits(nodes)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean circuits(final List<JavaPackage> nodes) {
+            final int[] path = new int[Math.min(nodes.size(), maxLength)];
+            final int[] nextEdge = new int[path.length];
+            final boolean[] found = new boolean[path.length];
+            int depth = 0;
+            path[depth] = start;
+            nextEdge[depth] = 0;
+            found[depth] = false;
+            depth++;
+            blocked[start] = true;
+
+            while (depth > 0) {
+                if (++steps % CLOCK_CHECK_INTERVAL == 0 && System.nanoTime() - startTime > timeoutNanos) {
+                    return false;
+                }
+                final int top = depth - 1;
+                final int node = path[top];
+                if (nextEdge[top] < successors[node].length) {
+                    final int successor = successors[node][nextEdge[top]++];
+                    if (successor < start) {
+                        continue;
+                    }
+                    if (successor == start) {
+                        found[top] = true;
+                        if (!report(nodes, path, depth)) {
+                            return false;
+                        }
+                    } else if (!blocked[successor]) {
+                        if (depth < path.length) {
+                            path[depth] = successor;
+                            nextEdge[depth] = 0;
+                            found[depth] = false;
+                            depth++;
+                            blocked[successor] = true;
+                        } else {
+                            // Cut off by the length limit: the node must not stay blocked
+                            found[top] = true;
+                        }
+                    }
+                    continue;
+                }
+                depth--;
+                if (found[top]) {
+                    unblock(node);
+                } else {
+                    for (final int successor : successors[node]) {
+                        if (successor >= start) {
+                            blockedBy.get(successor).add(node);
+                        }
+                    }
+                }
+                if (depth > 0) {
+                    found[depth - 1] |= found[top];
+                }
+            }
+            return true;
+        }
+
+        private boolean report(final List<JavaPackage> nodes, final int[] path, final int length) {
+            if (cycles >= maxCycles) {
+                return false;
+            }
+            final List<JavaPackage> cycle = new ArrayList<>(length);
+            for (int i = 0; i < length; i++) {
+                cycle.add(nodes.get(path[i]));
+            }
+            cycles++;
+            listener.onCycle(Collections.unmodifiableList(cycle));
+            return true;
+        }
+
+        private void unblock(final int node) {
+            final Deque<Integer> pending = new ArrayDeque<>();
+            pending.push(node);
+            while (!pending.isEmpty()) {
+                final int u = pending.pop();
+                blocked[u] = false;
+                final Set<Integer> waiting = blockedBy.get(u);
+                for (final int w : waiting) {
+                    if (blocked[w]) {
+                        pending.push(w);
+                    }
+                }
+                waiting.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package jdepend.framework;
+
+import java.util.List;
+
+/**
+ * The <code>CycleListener</code> interface defines a listener
+ * notified of every package dependency cycle found by a
+ * <code>CycleEnumerator</code>.
+ */
+public interface CycleListener {
+    /**
+     * Called for every elementary cycle.
+     *
+     * @param cycle Packages of the cycle in dependency order, starting with
+     *              the package of the cycle whose name sorts first. The last
+     *              package depends upon the first one.
+     */
+    void onCycle(List<JavaPackage> cycle);
+}
@@ -0,0 +1,25 @@
+package jdepend.framework;
+
+/**
+ * The <code>DependencyProfile</code> enumeration tells a parser from which
+ * parts of a class file it takes the packages a class depends upon.
+ */
+public enum DependencyProfile {
+
+    /**
+     * The class constants of the constant pool, the descriptors of the
+     * fields and methods, and the types and values of their annotations
+     * and of the annotations of the class.
+     */
+    FULL,
+
+    /**
+     * The class constants and every UTF-8 entry of the constant pool which
+     * is a valid field or method descriptor, in one pass over the constant
+     * pool. Fields, methods and annotations are skipped without being
+     * decoded. This finds the packages of <code>FULL</code>, and may find
+     * more: the descriptors of methods and fields of other classes the
+     * class refers to, and string constants shaped like descriptors.
+     */
+    CONSTANT_POOL
+}
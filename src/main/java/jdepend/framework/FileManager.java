@@ -1,19 +1,44 @@
 package jdepend.framework;
 
 import java.io.*;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 /**
  * The <code>FileManager</code> class is responsible for extracting 
  * Java class files (<code>.class</code> files) from a collection of 
  * registered directories.
+ *
+ * <p>The result of a scan is kept until the registered directories or the
+ * inner class setting change, or until <code>refresh()</code> is called,
+ * so that counting classes and analyzing them walk the file system once.
+ *
+ * <p>Directories are walked on the common fork/join pool, one task per
+ * directory. Every directory entry is examined once, through the
+ * attributes read for it, and subdirectories are walked in parallel.
+ * The files found are passed on in the order of their paths while the
+ * walk goes on.
  * 
  * @author <b>Mike Clark</b>
  * @author Clarkware Consulting, Inc.
  */
 public class FileManager {
+    /**
+     * The order of file paths, which is the order of <code>File</code>.
+     */
+    private static final Comparator<String> PATH_ORDER = new File("a").compareTo(new File("A")) == 0
+            ? String.CASE_INSENSITIVE_ORDER : Comparator.naturalOrder();
+
     private final List<File> directories;
     private boolean acceptInnerClasses;
+    private Collection<File> files;
 
 
     public FileManager() {
@@ -28,13 +53,21 @@ public class FileManager {
      *          <code>false</code> otherwise.
      */
     public void acceptInnerClasses(final boolean b) {
+        if (acceptInnerClasses != b) {
+            refresh();
+        }
         acceptInnerClasses = b;
     }
 
+    boolean isAcceptingInnerClasses() {
+        return acceptInnerClasses;
+    }
+
     public void addDirectory(final String name) throws IOException {
         final File directory = new File(name);
         if (directory.isDirectory() || acceptJarFile(directory)) {
             directories.add(directory);
+            refresh();
         } else {
             throw new IOException("Invalid directory or JAR file: " + name);
         }
@@ -49,42 +82,228 @@ public class FileManager {
     }
 
     public boolean acceptClassFileName(final String name) {
-        return (acceptInnerClasses || name.toLowerCase().indexOf('$') <= 0) && name.toLowerCase().endsWith(".class");
+        return (acceptInnerClasses || name.indexOf('$') <= 0) && name.toLowerCase().endsWith(".class");
     }
 
     public boolean acceptJarFile(final File file) {
         return isEar(file) || isJar(file) || isZip(file) || isWar(file);
     }
 
+    /**
+     * Determines whether the specified name, usually the name of an
+     * archive entry, denotes a .ear, .jar, .war, or .zip file.
+     *
+     * @param name File or entry name.
+     * @return <code>true</code> if the name has an archive extension.
+     */
+    public boolean acceptJarFileName(final String name) {
+        final String lowerCaseName = name.toLowerCase();
+        return lowerCaseName.endsWith(".ear")
+                || lowerCaseName.endsWith(".jar")
+                || lowerCaseName.endsWith(".zip")
+                || lowerCaseName.endsWith(".war");
+    }
+
+    /**
+     * Returns the class files and archives of the registered directories,
+     * sorted by path. The directories are scanned on the first call; later
+     * calls return the same read-only collection until the scan is
+     * discarded.
+     *
+     * @return Class files and archives.
+     */
     public Collection<File> extractFiles() {
-        final Collection<File> files = new TreeSet<>();
-        for (final File directory : directories) {
-            collectFiles(directory, files);
+        if (files == null) {
+            scan(file -> { });
         }
         return files;
     }
 
-    private void collectFiles(final File directory, final Collection<File> files) {
-        if (directory.isFile()) {
-            addFile(directory, files);
-        } else if (directory.isDirectory()) {
-            final String[] directoryFiles = directory.list();
-            assert directoryFiles != null;
-            for (final String directoryFile: directoryFiles) {
-                final File file = new File(directory, directoryFile);
-                if (acceptFile(file)) {
-                    addFile(file, files);
-                } else if (file.isDirectory()) {
-                    collectFiles(file, files);
+    /**
+     * Passes the class files and archives of the registered directories to
+     * the specified sink on the calling thread, in the order of
+     * <code>extractFiles()</code>. A file is passed on as soon as all
+     * files before it are known, while the rest of the directories is
+     * still walked. The result is kept as if <code>extractFiles()</code>
+     * had been called; a result which is kept already is passed on.
+     *
+     * @param sink Consumer of the files.
+     */
+    void scan(final Consumer<File> sink) {
+        if (files != null) {
+            files.forEach(sink);
+            return;
+        }
+        final AnalysisEvents.Scan event = new AnalysisEvents.Scan();
+        event.begin();
+        final List<File> found = new ArrayList<>();
+        walk(file -> {
+            found.add(file);
+            sink.accept(file);
+        });
+        files = Collections.unmodifiableList(found);
+        commit(event);
+    }
+
+    private void commit(final AnalysisEvents.Scan event) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.directories = directories.size();
+            event.files = files.size();
+            event.commit();
+        }
+    }
+
+    /**
+     * @return The result of the last scan, or <code>null</code> if the
+     *         directories were not scanned since it was discarded.
+     */
+    Collection<File> getScannedFiles() {
+        return files;
+    }
+
+    /**
+     * Discards the result of the last scan, so that files added to or
+     * removed from the registered directories since then are seen.
+     */
+    public void refresh() {
+        files = null;
+    }
+
+    /**
+     * Walks the registered directories and passes every class file and
+     * archive found to the specified sink in path order. A registered
+     * directory or archive which is also found by the walk of another one
+     * is walked only once.
+     */
+    private void walk(final Consumer<File> sink) {
+        final Predicate<String> accept = name -> acceptClassFileName(name) || acceptJarFileName(name);
+        final List<ScanEntry> roots = new ArrayList<>();
+        for (final File directory : directories) {
+            if (directory.isFile()) {
+                roots.add(new ScanEntry(directory.getPath(), directory, null));
+            } else {
+                final String path = directory.getPath();
+                roots.add(new ScanEntry(path.endsWith(File.separator) ? path : path + File.separator, null,
+                        new ScanTask(directory.toPath(), accept)));
+            }
+        }
+        roots.sort(ScanEntry.ORDER);
+
+        final List<ScanEntry> walked = new ArrayList<>();
+        String walkedDirectory = null;
+        for (final ScanEntry root : roots) {
+            final boolean duplicate = !walked.isEmpty()
+                    && ScanEntry.ORDER.compare(root, walked.get(walked.size() - 1)) == 0;
+            if (duplicate || walkedDirectory != null && startsWith(root.key, walkedDirectory)) {
+                continue;
+            }
+            if (root.task != null) {
+                walkedDirectory = root.key;
+                ForkJoinPool.commonPool().execute(root.task);
+            }
+            walked.add(root);
+        }
+        ScanEntry.emit(walked, sink);
+    }
+
+    private static boolean startsWith(final String path, final String prefix) {
+        return path.length() >= prefix.length() && PATH_ORDER.compare(path.substring(0, prefix.length()), prefix) == 0;
+    }
+
+    /**
+     * The <code>ScanEntry</code> class is a file or a directory found by
+     * a scan. The key of a directory ends with a separator, so that
+     * sorting the entries of a directory by their keys and every
+     * subdirectory in turn puts the files in the order of their paths.
+     */
+    private static final class ScanEntry {
+        static final Comparator<ScanEntry> ORDER = (a, b) -> PATH_ORDER.compare(a.key, b.key);
+
+        private final String key;
+        private final File file;
+        private final ScanTask task;
+
+        ScanEntry(final String key, final File file, final ScanTask task) {
+            this.key = key;
+            this.file = file;
+            this.task = task;
+        }
+
+        static void emit(final List<ScanEntry> entries, final Consumer<File> sink) {
+            for (final ScanEntry entry : entries) {
+                if (entry.task != null) {
+                    entry.task.emit(sink);
+                } else {
+                    sink.accept(entry.file);
                 }
             }
         }
     }
 
-    private void addFile(final File f, final Collection<File> files) {
-        if (!files.contains(f)) {
-            files.add(f);
+    /**
+     * The <code>ScanTask</code> class walks a directory. Its files with
+     * accepted names are kept in order of their names, and a forked task
+     * walks each subdirectory. Entries whose attributes cannot be read,
+     * such as broken links, and directories which cannot be listed are
+     * skipped.
+     */
+    private static final class ScanTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final transient Path directory;
+        private final transient Predicate<String> accept;
+        private transient List<ScanEntry> entries;
+
+        ScanTask(final Path directory, final Predicate<String> accept) {
+            this.directory = directory;
+            this.accept = accept;
+        }
+
+        @Override
+        @SuppressWarnings("EmptyCatchBlock")
+        protected void compute() {
+            final List<ScanEntry> found = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+                for (final Path entry : stream) {
+                    final BasicFileAttributes attributes = readAttributes(entry);
+                    if (attributes == null) {
+                        continue;
+                    }
+                    final String name = entry.getFileName().toString();
+                    if (attributes.isRegularFile() && accept.test(name)) {
+                        found.add(new ScanEntry(name, entry.toFile(), null));
+                    } else if (attributes.isDirectory()) {
+                        final ScanTask subdirectory = new ScanTask(entry, accept);
+                        subdirectory.fork();
+                        found.add(new ScanEntry(name + File.separator, null, subdirectory));
+                    }
+                }
+            } catch (final IOException ignore) {
+            }
+            found.sort(ScanEntry.ORDER);
+            entries = found;
+        }
+
+        /**
+         * Waits for the walk of the directory, and passes its files and the
+         * files of its subdirectories to the sink.
+         */
+        void emit(final Consumer<File> sink) {
+            join();
+            final List<ScanEntry> found = entries;
+            entries = null;
+            ScanEntry.emit(found, sink);
+        }
+    }
+
+    @SuppressWarnings("EmptyCatchBlock")
+    private static BasicFileAttributes readAttributes(final Path path) {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (final IOException ignore) {
         }
+        return null;
     }
 
     private boolean isEar(final File file) {
@@ -1,7 +1,10 @@
 package jdepend.framework;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 /**
  * The <code>JDepend</code> class analyzes directories of Java class files 
@@ -105,7 +108,12 @@ public class JDepend {
     private final ClassFileParser parser;
     private final JavaClassBuilder builder;
     private PackageFilter filter;
-    private Collection<String> components;
+    private ComponentMapper components;
+    private JavaPackage[] packagesBySymbol = new JavaPackage[0];
+    private Collection<File> analyzedFiles;
+    private CycleAnalysis cycles;
+    private Predicate<String> classDetail;
+    private AnalysisStatistics.Recorder statistics;
 
     public JDepend() {
         this(new PackageFilter());
@@ -124,17 +132,97 @@ public class JDepend {
     /**
      * Analyzes the registered directories and returns the collection of
      * analyzed packages.
+     *
+     * <p>Every class is added to its package as soon as it is parsed, so the
+     * classes are never all held in a list at once. Classes of packages
+     * without class-level detail are released after they were counted.
+     *
+     * <p>The registered directories are scanned once for an analysis and
+     * the counts of the classes before and after it. The next analysis
+     * scans them again, so that it sees files added or removed in the
+     * meantime.
      * 
      * @return Collection of analyzed packages.
      */
     public Collection<JavaPackage> analyze() {
-        final Collection<JavaClass> classes = builder.build();
-        for (final JavaClass aClass : classes) {
-            analyzeClass(aClass);
+        // Every build starts a new symbol table, which reuses the ids
+        packagesBySymbol = new JavaPackage[0];
+        cycles = null;
+        if (analyzedFiles != null && fileManager.getScannedFiles() == analyzedFiles) {
+            fileManager.refresh();
+        }
+        final AnalysisStatistics.Recorder recorder = statistics;
+        try {
+            if (recorder == null) {
+                builder.build(this::analyzeClass);
+            } else {
+                final long wallStart = System.nanoTime();
+                builder.build(javaClass -> {
+                    final long classStart = System.nanoTime();
+                    final long cpuStart = recorder.cpuTime();
+                    analyzeClass(javaClass);
+                    recorder.add(AnalysisStatistics.Phase.AGGREGATE, classStart, cpuStart);
+                    recorder.addClassAnalyzed();
+                });
+                recorder.addAnalysis(wallStart);
+            }
+        } finally {
+            analyzedFiles = fileManager.getScannedFiles();
+            cycles = null;
         }
         return getPackages();
     }
 
+    /**
+     * Determines whether statistics of the phases of the analysis are
+     * collected. Turning them on starts a new collection.
+     *
+     * @param collectStatistics <code>true</code> to collect statistics;
+     *                          <code>false</code> otherwise.
+     */
+    public void setCollectStatistics(final boolean collectStatistics) {
+        statistics = collectStatistics ? new AnalysisStatistics.Recorder() : null;
+        builder.setStatistics(statistics);
+    }
+
+    /**
+     * Returns a snapshot of the statistics collected since they were
+     * turned on.
+     *
+     * @return Statistics, or <code>null</code> if no statistics are collected.
+     */
+    public AnalysisStatistics getStatistics() {
+        final AnalysisStatistics.Recorder recorder = statistics;
+        return recorder != null ? recorder.snapshot() : null;
+    }
+
+    /**
+     * Runs work done for the analysis, such as writing a report, and adds
+     * its time to the specified phase if statistics are collected.
+     *
+     * @param phase Phase.
+     * @param work Work.
+     * @return Result of the work.
+     */
+    public <T> T measure(final AnalysisStatistics.Phase phase, final Supplier<T> work) {
+        final AnalysisStatistics.Recorder recorder = statistics;
+        return recorder != null ? recorder.measure(phase, work) : work.get();
+    }
+
+    /**
+     * Runs work done for the analysis, such as writing a report, and adds
+     * its time to the specified phase if statistics are collected.
+     *
+     * @param phase Phase.
+     * @param work Work.
+     */
+    public void measure(final AnalysisStatistics.Phase phase, final Runnable work) {
+        measure(phase, () -> {
+            work.run();
+            return null;
+        });
+    }
+
     /**
      * Adds the specified directory name to the collection of directories to be
      * analyzed.
@@ -152,16 +240,109 @@ public class JDepend {
      * @param components Comma-separated list of components.
      */
     public void setComponents(final String components) {
-        this.components = new ArrayList<>();
-        final StringTokenizer st = new StringTokenizer(components, ",");
-        while (st.hasMoreTokens()) {
-            final String component = st.nextToken();
-            this.components.add(component);
+        setComponents(components.split(","));
+    }
+
+    /**
+     * Sets the list of components.
+     *
+     * <p>A package belongs to the longest component its name starts with,
+     * followed by a dot. A <code>*</code> in a component matches any one
+     * segment of a package name, so that <code>com.*</code> groups every
+     * package below <code>com</code> by its second segment.
+     *
+     * @param components Components.
+     */
+    public void setComponents(final String... components) {
+        final Collection<String> names = new ArrayList<>();
+        for (final String component : components) {
+            if (component.length() > 0) {
+                names.add(component);
+            }
         }
+        this.components = new ComponentMapper(names);
+        packagesBySymbol = new JavaPackage[0];
+    }
+
+    /**
+     * Determines whether class files are parsed in parallel, using one
+     * thread per available processor.
+     *
+     * @param parallel <code>true</code> to parse in parallel;
+     *                 <code>false</code> otherwise.
+     */
+    public void setParallel(final boolean parallel) {
+        builder.setParallel(parallel);
     }
 
-    // TODO: Create method setComponents(final String... components)
-    // TODO: Change method setComponents(String components) to call setComponents(components.split(","))
+    /**
+     * Sets the number of threads used to parse class files.
+     *
+     * @param threads Number of parser threads, <code>1</code> to parse sequentially.
+     */
+    public void setThreads(final int threads) {
+        builder.setThreads(threads);
+    }
+
+    /**
+     * Sets the number of threads used to read class files in a parallel build.
+     *
+     * @param readerThreads Number of reader threads, <code>0</code> for as many as parser threads.
+     */
+    public void setReaderThreads(final int readerThreads) {
+        builder.setReaderThreads(readerThreads);
+    }
+
+    /**
+     * Sets from which parts of the class files the dependencies are taken.
+     *
+     * @param dependencyProfile Dependency profile.
+     */
+    public void setDependencyProfile(final DependencyProfile dependencyProfile) {
+        parser.setDependencyProfile(dependencyProfile);
+    }
+
+    /**
+     * Determines whether .jar, .war, and .zip files are memory-mapped.
+     *
+     * @param memoryMappedArchives <code>true</code> to memory-map archives;
+     *                             <code>false</code> to open them as <code>JarFile</code>.
+     */
+    public void setMemoryMappedArchives(final boolean memoryMappedArchives) {
+        builder.setMemoryMappedArchives(memoryMappedArchives);
+    }
+
+    /**
+     * Sets how deep archives inside other archives are analyzed.
+     *
+     * @param nestedArchiveDepth Maximum nesting depth, <code>0</code> to ignore nested archives.
+     */
+    public void setNestedArchiveDepth(final int nestedArchiveDepth) {
+        builder.setNestedArchiveDepth(nestedArchiveDepth);
+    }
+
+    /**
+     * Sets the cache of parse results, so that class files and archives
+     * unchanged since the previous analysis are not parsed again.
+     *
+     * @param cache Cache, or <code>null</code> to parse all files.
+     */
+    public void setCache(final AnalysisCache cache) {
+        builder.setCache(cache);
+    }
+
+    /**
+     * Selects the packages which keep their <code>JavaClass</code> instances.
+     * The classes of other packages are counted, so that all metrics stay
+     * the same, but they are not returned by <code>JavaPackage.getClasses()</code>.
+     * By default, all packages keep their classes.
+     *
+     * @param classDetail Predicate on the package name,
+     *                    or <code>null</code> to keep the classes of all packages.
+     */
+    public void setClassDetail(final Predicate<String> classDetail) {
+        this.classDetail = classDetail;
+    }
 
     /**
      * Determines whether inner classes are analyzed.
@@ -216,12 +397,22 @@ public class JDepend {
      * @return <code>true</code> if one or more dependency cycles exist.
      */
     public boolean containsCycles() {
-        for (final JavaPackage jPackage : getPackages()) {
-            if (jPackage.containsCycle()) {
-                return true;
-            }
+        return analyzeCycles().containsCycles();
+    }
+
+    /**
+     * Finds the package dependency cycles of the analyzed packages in one pass.
+     * The analysis is done once and kept until the next analysis or until
+     * packages are added, so that the cycles of many packages are looked up
+     * in it rather than found for every package.
+     *
+     * @return Cycle analysis of the analyzed packages.
+     */
+    public CycleAnalysis analyzeCycles() {
+        if (cycles == null) {
+            cycles = measure(AnalysisStatistics.Phase.CYCLES, () -> new CycleAnalysis(getPackages()));
         }
-        return false;
+        return cycles;
     }
 
     /**
@@ -245,14 +436,7 @@ public class JDepend {
     }
 
     private String toComponent(final String packageName) {
-        if (components != null) {
-            for (final String component : components) {
-                if (packageName.startsWith(component + ".")) {
-                    return component;
-                }
-            }
-        }
-        return packageName;
+        return components != null ? components.toComponent(packageName) : packageName;
     }
 
     /**
@@ -292,8 +476,9 @@ public class JDepend {
      * @param pkg Java package.
      */
     public void addPackage(final JavaPackage pkg) {
-        if (!packages.containsValue(pkg)) {
-            packages.put(pkg.getName(), pkg);
+        cycles = null;
+        if (!packages.containsValue(pkg) && packages.put(pkg.getName(), pkg) != null) {
+            packagesBySymbol = new JavaPackage[0];
         }
     }
 
@@ -319,12 +504,36 @@ public class JDepend {
         }
 
         final JavaPackage clazzPackage = addPackage(packageName);
-        clazzPackage.addClass(clazz);
+        if (classDetail == null || classDetail.test(clazzPackage.getName())) {
+            clazzPackage.addClass(clazz);
+        } else {
+            clazzPackage.addClassSummary(clazz);
+        }
 
         final Collection<JavaPackage> imports = clazz.getImportedPackages();
-        for (JavaPackage importedPackage : imports) {
-            importedPackage = addPackage(importedPackage.getName());
-            clazzPackage.dependsUpon(importedPackage);
+        for (final JavaPackage importedPackage : imports) {
+            clazzPackage.dependsUpon(addImportedPackage(importedPackage));
+        }
+    }
+
+    /**
+     * Returns the analyzed package, or component, of an imported package.
+     * The packages of parsed classes are interned, so the result is
+     * remembered by the id of the imported package.
+     */
+    private JavaPackage addImportedPackage(final JavaPackage importedPackage) {
+        final int id = importedPackage.symbolId;
+        if (id < 0) {
+            return addPackage(importedPackage.getName());
+        }
+        if (id >= packagesBySymbol.length) {
+            packagesBySymbol = Arrays.copyOf(packagesBySymbol, Math.max(id + 1, packagesBySymbol.length * 2));
+        }
+        JavaPackage analyzed = packagesBySymbol[id];
+        if (analyzed == null) {
+            analyzed = addPackage(importedPackage.getName());
+            packagesBySymbol[id] = analyzed;
         }
+        return analyzed;
     }
 }
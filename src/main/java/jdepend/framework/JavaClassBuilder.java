@@ -1,7 +1,11 @@
 package jdepend.framework;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
 import java.util.jar.*;
 import java.util.zip.*;
 
@@ -13,8 +17,22 @@ import java.util.zip.*;
  * @author Clarkware Consulting, Inc.
  */
 public class JavaClassBuilder {
+    private static final int PENDING_CLASSES_PER_THREAD = 64;
+    private static final String[] CLASS_DIRECTORIES = {"WEB-INF/classes/", "BOOT-INF/classes/"};
+    private static final String VERSIONS_DIRECTORY = "META-INF/versions/";
+
     private final AbstractParser parser;
     private final FileManager fileManager;
+    private int threads = 1;
+    private int readerThreads;
+    private boolean memoryMappedArchives;
+    private int nestedArchiveDepth;
+    private AnalysisCache cache;
+    private AnalysisStatistics.Recorder statistics;
+    private Collection<File> countedFiles;
+    private String countedSettings;
+    private int classCount;
+    private int entryFailures;
 
     public JavaClassBuilder() {
         this(new ClassFileParser(), new FileManager());
@@ -29,16 +47,211 @@ public class JavaClassBuilder {
         this.fileManager = fm;
     }
 
+    /**
+     * Determines whether class files are parsed in parallel, using
+     * one thread per available processor.
+     *
+     * @param parallel <code>true</code> to parse in parallel;
+     *                 <code>false</code> to parse on the calling thread.
+     */
+    public void setParallel(final boolean parallel) {
+        setThreads(parallel ? Runtime.getRuntime().availableProcessors() : 1);
+    }
+
+    /**
+     * Sets the number of threads used to parse class files and archive entries.
+     * A value of <code>1</code> or less parses sequentially on the calling thread.
+     *
+     * @param threads Number of parser threads.
+     */
+    public void setThreads(final int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Sets the number of threads used to read class files and the entries of
+     * archives opened as a <code>JarFile</code> in a parallel build, so that
+     * waiting for the disk overlaps with parsing. By default, there are as
+     * many reader threads as parser threads.
+     *
+     * @param readerThreads Number of reader threads,
+     *                      <code>0</code> for as many as parser threads.
+     */
+    public void setReaderThreads(final int readerThreads) {
+        this.readerThreads = Math.max(0, readerThreads);
+    }
+
+    public int getReaderThreads() {
+        return readerThreads > 0 ? readerThreads : threads;
+    }
+
+    /**
+     * Determines whether archives are memory-mapped and read through their
+     * central directory instead of being opened as a <code>JarFile</code>.
+     * Stored entries are then parsed without copying, and deflated entries
+     * are inflated with one reusable <code>Inflater</code> per parser thread.
+     * Archives over 2 GB are still opened as a <code>JarFile</code>.
+     *
+     * @param memoryMappedArchives <code>true</code> to memory-map archives.
+     */
+    public void setMemoryMappedArchives(final boolean memoryMappedArchives) {
+        this.memoryMappedArchives = memoryMappedArchives;
+    }
+
+    public boolean isMemoryMappedArchives() {
+        return memoryMappedArchives;
+    }
+
+    /**
+     * Sets how deep archives nested in other archives are analyzed, for
+     * example the <code>WEB-INF/lib</code> jars of a war file (depth 1) or
+     * the jars inside the wars of an ear file (depth 2).
+     * Nested archives are read in memory and never extracted to disk.
+     *
+     * @param nestedArchiveDepth Maximum nesting depth,
+     *                           <code>0</code> to ignore nested archives.
+     */
+    public void setNestedArchiveDepth(final int nestedArchiveDepth) {
+        this.nestedArchiveDepth = Math.max(0, nestedArchiveDepth);
+    }
+
+    public int getNestedArchiveDepth() {
+        return nestedArchiveDepth;
+    }
+
+    /**
+     * Sets the cache of parse results. Class files and archives whose
+     * cache entries are still valid are not parsed again, and the
+     * cache file is written at the end of every build.
+     *
+     * @param cache Cache, or <code>null</code> to parse all files.
+     */
+    public void setCache(final AnalysisCache cache) {
+        this.cache = cache;
+    }
+
+    public AnalysisCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Sets the recorder of the statistics of the scan, read, and parse
+     * phases of builds.
+     *
+     * @param statistics Recorder, or <code>null</code> to record nothing.
+     */
+    void setStatistics(final AnalysisStatistics.Recorder statistics) {
+        this.statistics = statistics;
+    }
+
+    /**
+     * Counts the class files a build would read, without reading them.
+     * Class files are counted from the scan of the file manager, archives
+     * from their central directory, which is read the same way as by the
+     * build; no entry is read except nested archives.
+     *
+     * <p>A class file is counted if the build reads it. Loose class files
+     * and archive entries whose path does not tell their package are
+     * counted even if their package is filtered, as the build has to read
+     * them to find their package. Archive entries whose path tells a
+     * filtered package are skipped by the build and not counted. An
+     * archive which cannot be read is reported and not counted.
+     *
+     * <p>The count is kept as long as the file manager returns the same
+     * scan, which the next build then uses as well, and the settings
+     * the parse results depend on do not change.
+     *
+     * @return Number of classes.
+     */
     public int countClasses() {
-        final AbstractParser counter = new AbstractParser() {
-            @Override
-            public JavaClass parse(final InputStream inputStream) {
-                return new JavaClass("");
+        final Collection<File> files = fileManager.extractFiles();
+        final String settings = cacheFingerprint();
+        if (files != countedFiles || !settings.equals(countedSettings)) {
+            int count = 0;
+            final Inflater inflater = new Inflater(true);
+            try {
+                for (final File file : files) {
+                    count += countClasses(file, inflater);
+                }
+            } finally {
+                inflater.end();
+            }
+            classCount = count;
+            countedFiles = files;
+            countedSettings = settings;
+        }
+        return classCount;
+    }
+
+    private int countClasses(final File file, final Inflater inflater) {
+        try {
+            if (fileManager.acceptClassFileName(file.getName())) {
+                return 1;
+            } else if (fileManager.acceptJarFileName(file.getName()) && mapArchive(file)) {
+                try (ZipArchive archive = ZipArchive.open(file)) {
+                    return countClasses(archive, nestedArchiveDepth, inflater);
+                }
+            } else if (fileManager.acceptJarFileName(file.getName())) {
+                try (JarFile jarFile = new JarFile(file)) {
+                    return countClasses(jarFile);
+                }
+            }
+        } catch (final IOException ioe) {
+            System.err.println("\n" + ioe.getMessage());
+        }
+        return 0;
+    }
+
+    private int countClasses(final JarFile file) throws IOException {
+        int count = 0;
+        final Enumeration<JarEntry> entries = file.entries();
+        while (entries.hasMoreElements()) {
+            final ZipEntry e = entries.nextElement();
+            if (acceptClassEntry(file.getName(), e.getName())) {
+                count++;
+            } else if (acceptNestedArchive(e.getName(), nestedArchiveDepth)) {
+                count += countNestedClasses(file.getName() + "!/" + e.getName(), readEntry(file, e),
+                        nestedArchiveDepth - 1);
+            }
+        }
+        return count;
+    }
+
+    private int countClasses(final ZipArchive archive, final int depth, final Inflater inflater) throws IOException {
+        int count = 0;
+        for (final ZipArchive.Entry e : archive.getEntries()) {
+            if (acceptClassEntry(archive.getName(), e.getName())) {
+                count++;
+            } else if (acceptNestedArchive(e.getName(), depth)) {
+                count += countNestedClasses(archive.getName() + "!/" + e.getName(), archive.read(e, inflater),
+                        depth - 1);
             }
-        };
-        final JavaClassBuilder builder = new JavaClassBuilder(counter, fileManager);
-        final Collection<JavaClass> classes = builder.build();
-        return classes.size();
+        }
+        return count;
+    }
+
+    private int countNestedClasses(final String name, final ByteBuffer bytes, final int depth) {
+        final Inflater inflater = new Inflater(true);
+        try {
+            return countClasses(new ZipArchive(name, bytes), depth, inflater);
+        } catch (final IOException ioe) {
+            System.err.println("\n" + ioe.getMessage());
+        } finally {
+            inflater.end();
+        }
+        return 0;
+    }
+
+    /**
+     * Indicates whether an archive is read memory-mapped. An archive over
+     * 2 GB does not fit into one buffer and is read as a jar file.
+     */
+    private boolean mapArchive(final File file) {
+        return memoryMappedArchives && file.length() <= Integer.MAX_VALUE;
     }
 
     /**
@@ -48,16 +261,477 @@ public class JavaClassBuilder {
      */
     public Collection<JavaClass> build() {
         final Collection<JavaClass> classes = new ArrayList<>();
-        for (final File nextFile : fileManager.extractFiles()) {
+        build(classes::add);
+        return classes;
+    }
+
+    /**
+     * Builds the <code>JavaClass</code> instances and passes every one of
+     * them to the specified consumer as soon as it is available, in the
+     * order in which <code>build()</code> returns them.
+     *
+     * <p>The builder does not hold on to the classes it has passed on, so
+     * a consumer which reduces every class to what it needs keeps the
+     * memory footprint of a build low. The consumer is always called on
+     * the calling thread; in a parallel build, at most a bounded number of
+     * parsed classes wait for it.
+     *
+     * <p>Every build interns its package names in a new symbol table of the
+     * parser, so the ids of the imported packages are only unique within
+     * one build.
+     *
+     * @param consumer Consumer of the <code>JavaClass</code> instances.
+     */
+    public void build(final Consumer<JavaClass> consumer) {
+        parser.newSymbolTable();
+        if (cache != null) {
+            cache.load(cacheFingerprint());
+        }
+        if (threads > 1) {
+            buildParallel(consumer);
+        } else {
+            buildSequential(consumer);
+        }
+        if (cache != null) {
             try {
-                classes.addAll(buildClasses(nextFile));
+                cache.save();
             } catch (final IOException ioe) {
                 System.err.println("\n" + ioe.getMessage());
             }
         }
+    }
+
+    private void buildSequential(final Consumer<JavaClass> consumer) {
+        scan(nextFile -> {
+            try {
+                buildCachedClasses(nextFile, consumer);
+            } catch (final IOException ioe) {
+                System.err.println("\n" + ioe.getMessage());
+            }
+        });
+    }
+
+    private void buildCachedClasses(final File file, final Consumer<JavaClass> consumer) throws IOException {
+        if (cache == null) {
+            buildClasses(file, consumer);
+            return;
+        }
+        final AnalysisCache.Entry entry = cache.lookup(file);
+        if (entry.isValid()) {
+            cachedClasses(entry).forEach(consumer);
+            return;
+        }
+        final Collection<JavaClass> classes = new ArrayList<>();
+        final int failures = entryFailures;
+        buildClasses(file, javaClass -> {
+            classes.add(javaClass);
+            consumer.accept(javaClass);
+        });
+        if (entryFailures == failures) {
+            cache.put(entry, classes);
+        }
+    }
+
+    /**
+     * Returns the classes of a valid cache entry. Registered parser listeners
+     * are informed as if the classes had been parsed.
+     */
+    private Collection<JavaClass> cachedClasses(final AnalysisCache.Entry entry) {
+        final Collection<JavaClass> classes = entry.getClasses(parser.getSymbolTable());
+        for (final JavaClass javaClass : classes) {
+            parser.onParsedJavaClass(javaClass);
+        }
         return classes;
     }
 
+    /**
+     * Describes the settings the parse results depend on. A cache created
+     * with different settings is discarded.
+     */
+    private String cacheFingerprint() {
+        final List<String> filters = new ArrayList<>(parser.getFilter().getFilters());
+        Collections.sort(filters);
+        final List<String> includes = new ArrayList<>(parser.getFilter().getIncludes());
+        Collections.sort(includes);
+        return parser.getClass().getName()
+                + " innerClasses=" + fileManager.isAcceptingInnerClasses()
+                + " nestedArchiveDepth=" + nestedArchiveDepth
+                + " filters=" + filters
+                + " includes=" + includes
+                + " profile=" + parser.getDependencyProfile();
+    }
+
+    /**
+     * Builds the <code>JavaClass</code> instances in a pipeline of stages:
+     * the calling thread enumerates the files and archive entries, reader
+     * threads read them, parser threads parse them, and the calling thread
+     * passes the classes on to the consumer as the only writer of the
+     * results. Every class file and every archive entry is a separate task.
+     * The results are passed on in the order of the files and entries,
+     * so the outcome is the same as for a sequential build.
+     *
+     * <p>The files are submitted as the scan of the file manager passes
+     * them on, while it still walks the directories. The scan keeps the
+     * order of the paths, as the order in which dependencies are added
+     * decides the order in which cycles are reported.
+     */
+    private void buildParallel(final Consumer<JavaClass> consumer) {
+        try (ParallelBuild build = new ParallelBuild(consumer)) {
+            scan(nextFile -> {
+                try {
+                    build.submit(nextFile);
+                } catch (final IOException ioe) {
+                    System.err.println("\n" + ioe.getMessage());
+                }
+            });
+            build.drain(0);
+        }
+    }
+
+    /**
+     * The <code>ParallelBuild</code> class holds the executors, the open
+     * archives and the inflaters of one parallel build.
+     * Archives are enumerated on the calling thread. Class files and the
+     * entries of a <code>JarFile</code> are read on the reader threads;
+     * the entries of memory-mapped archives are inflated on the parser
+     * threads, as that does not wait for the disk. An archive is closed as
+     * soon as the classes of all its entries were passed on; the inflaters
+     * belong to the parser threads and are shared by all archives.
+     *
+     * <p>Submitted tasks wait in a queue in submission order. Whenever the
+     * queue is longer than its window, the calling thread waits for the
+     * oldest task and passes its class on, so reading and parsing never run
+     * far ahead of the consumer. As no more tasks than that are in flight,
+     * the work queues of the reader and parser threads are bounded by the
+     * window as well.
+     */
+    private final class ParallelBuild implements AutoCloseable {
+        private final int window = threads * PENDING_CLASSES_PER_THREAD;
+        private final ExecutorService executor = newExecutor(threads, window, "jdepend-parser");
+        private final ExecutorService readers = newExecutor(getReaderThreads(), window, "jdepend-reader");
+        private final List<OpenArchive> archives = new ArrayList<>();
+        private final Queue<Inflater> inflaters = new ConcurrentLinkedQueue<>();
+        private final ThreadLocal<Inflater> workerInflater = ThreadLocal.withInitial(this::newInflater);
+        private final Deque<PendingClass> pending = new ArrayDeque<>();
+        private final Consumer<JavaClass> consumer;
+        private CachedFile cachedFile;
+        private OpenArchive openArchive;
+
+        ParallelBuild(final Consumer<JavaClass> consumer) {
+            this.consumer = consumer;
+        }
+
+        private Inflater newInflater() {
+            final Inflater inflater = new Inflater(true);
+            inflaters.add(inflater);
+            return inflater;
+        }
+
+        void submit(final File file) throws IOException {
+            if (cache == null) {
+                submitClasses(file);
+                return;
+            }
+            final AnalysisCache.Entry entry = cache.lookup(file);
+            if (entry.isValid()) {
+                for (final JavaClass javaClass : cachedClasses(entry)) {
+                    add(CompletableFuture.completedFuture(javaClass));
+                }
+                return;
+            }
+            cachedFile = new CachedFile(entry);
+            try {
+                submitClasses(file);
+            } catch (final IOException ioe) {
+                cachedFile.failed = true;
+                throw ioe;
+            } finally {
+                cachedFile.submitted = true;
+                cachedFile.updateCache();
+                cachedFile = null;
+            }
+        }
+
+        private void add(final Future<JavaClass> result) {
+            pending.add(new PendingClass(result, cachedFile, openArchive));
+            if (cachedFile != null) {
+                cachedFile.pending++;
+            }
+            if (openArchive != null) {
+                openArchive.pending++;
+            }
+            drain(window);
+        }
+
+        /**
+         * Passes on the classes of the oldest tasks until no more than the
+         * specified number of tasks are waiting.
+         */
+        void drain(final int limit) {
+            while (pending.size() > limit) {
+                final PendingClass next = pending.remove();
+                try {
+                    final JavaClass javaClass = next.result.get();
+                    if (javaClass != null) {
+                        consumer.accept(javaClass);
+                        if (next.file != null) {
+                            next.file.classes.add(javaClass);
+                        }
+                    }
+                } catch (final ExecutionException e) {
+                    rethrowUnlessIOException(e.getCause());
+                    System.err.println("\n" + e.getCause().getMessage());
+                    if (next.file != null) {
+                        next.file.failed = true;
+                    }
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    pending.clear();
+                    return;
+                }
+                if (next.file != null) {
+                    next.file.pending--;
+                    next.file.updateCache();
+                }
+                if (next.archive != null) {
+                    next.archive.pending--;
+                    next.archive.closeIfDone();
+                }
+            }
+        }
+
+        void submitClasses(final File file) throws IOException {
+            if (fileManager.acceptClassFileName(file.getName())) {
+                add(readAndParse(file.getPath(), null, () -> readFile(file)));
+            } else if (fileManager.acceptJarFileName(file.getName())) {
+                final AnalysisEvents.Archive event = new AnalysisEvents.Archive();
+                event.begin();
+                try {
+                    if (mapArchive(file)) {
+                        final ZipArchive archive = ZipArchive.open(file);
+                        open(archive);
+                        submitClasses(archive, nestedArchiveDepth);
+                    } else {
+                        final JarFile jarFile = new JarFile(file);
+                        open(jarFile);
+                        submitClasses(jarFile);
+                    }
+                } finally {
+                    submitted();
+                }
+                commit(event, file);
+            } else {
+                throw new IOException("File is not a valid " + ".class, .jar, .war, or .zip file: " + file.getPath());
+            }
+        }
+
+        /**
+         * Opens an archive for the tasks submitted next.
+         */
+        private void open(final Closeable archive) {
+            openArchive = new OpenArchive(archive);
+            archives.add(openArchive);
+        }
+
+        /**
+         * Marks the open archive as completely submitted, and closes it if
+         * its tasks are all done already.
+         */
+        private void submitted() {
+            if (openArchive != null) {
+                openArchive.submitted = true;
+                openArchive.closeIfDone();
+                openArchive = null;
+            }
+        }
+
+        private void submitClasses(final JarFile jarFile) throws IOException {
+            final Enumeration<JarEntry> entries = jarFile.entries();
+            while (entries.hasMoreElements()) {
+                final ZipEntry e = entries.nextElement();
+                if (readClassEntry(jarFile.getName(), e.getName())) {
+                    add(readAndParse(jarFile.getName(), e.getName(), () -> readEntry(jarFile, e)));
+                } else if (acceptNestedArchive(e.getName(), nestedArchiveDepth)) {
+                    submitNestedClasses(jarFile.getName() + "!/" + e.getName(),
+                            read(jarFile.getName(), e.getName(), () -> readEntry(jarFile, e)),
+                            nestedArchiveDepth - 1);
+                }
+            }
+        }
+
+        private void submitClasses(final ZipArchive archive, final int depth) throws IOException {
+            for (final ZipArchive.Entry e : archive.getEntries()) {
+                if (readClassEntry(archive.getName(), e.getName())) {
+                    add(executor.submit(() -> parseEntry(archive.getName(), e.getName(),
+                            read(archive.getName(), e.getName(), () -> archive.read(e, workerInflater.get())))));
+                } else if (acceptNestedArchive(e.getName(), depth)) {
+                    submitNestedClasses(archive.getName() + "!/" + e.getName(),
+                            read(archive.getName(), e.getName(), () -> archive.read(e, workerInflater.get())),
+                            depth - 1);
+                }
+            }
+        }
+
+        /**
+         * Reads and parses a class file, or a class file entry of an archive.
+         * The class of an entry may be <code>null</code>, as told by
+         * <code>parseEntry()</code>.
+         */
+        private Future<JavaClass> readAndParse(final String path, final String entry, final Stage<ByteBuffer> read) {
+            return CompletableFuture.supplyAsync(() -> call(() -> read(path, entry, read)), readers)
+                    .thenApplyAsync(bytes -> call(() -> entry != null ? parseEntry(path, entry, bytes)
+                            : parse(path, bytes)), executor);
+        }
+
+        private void submitNestedClasses(final String name, final ByteBuffer bytes, final int depth) {
+            try {
+                submitClasses(new ZipArchive(name, bytes), depth);
+            } catch (final IOException ioe) {
+                System.err.println("\n" + ioe.getMessage());
+            }
+        }
+
+        @Override
+        public void close() {
+            readers.shutdownNow();
+            executor.shutdownNow();
+            awaitTermination(readers);
+            awaitTermination(executor);
+            for (final OpenArchive archive : archives) {
+                archive.close();
+            }
+            for (final Inflater inflater : inflaters) {
+                inflater.end();
+            }
+        }
+    }
+
+    /**
+     * The <code>PendingClass</code> class is a submitted parse task, together
+     * with the file to be cached and the archive it belongs to.
+     */
+    private static final class PendingClass {
+        private final Future<JavaClass> result;
+        private final CachedFile file;
+        private final OpenArchive archive;
+
+        PendingClass(final Future<JavaClass> result, final CachedFile file, final OpenArchive archive) {
+            this.result = result;
+            this.file = file;
+            this.archive = archive;
+        }
+    }
+
+    /**
+     * The <code>OpenArchive</code> class is an archive of a parallel build,
+     * together with the number of its tasks whose classes were not passed
+     * on yet. It is closed once all its entries were submitted and all its
+     * tasks are done.
+     */
+    private static final class OpenArchive {
+        private Closeable archive;
+        private int pending;
+        private boolean submitted;
+
+        OpenArchive(final Closeable archive) {
+            this.archive = archive;
+        }
+
+        void closeIfDone() {
+            if (submitted && pending == 0) {
+                close();
+            }
+        }
+
+        void close() {
+            if (archive != null) {
+                JavaClassBuilder.close(archive);
+                archive = null;
+            }
+        }
+    }
+
+    /**
+     * The <code>CachedFile</code> class collects the classes of a file
+     * during a parallel build. They are stored in the cache once all tasks
+     * of the file completed normally; files with errors are parsed again
+     * next time.
+     */
+    private final class CachedFile {
+        private final AnalysisCache.Entry entry;
+        private final Collection<JavaClass> classes = new ArrayList<>();
+        private int pending;
+        private boolean submitted;
+        private boolean failed;
+
+        CachedFile(final AnalysisCache.Entry entry) {
+            this.entry = entry;
+        }
+
+        void updateCache() {
+            if (submitted && pending == 0 && !failed) {
+                cache.put(entry, classes);
+            }
+        }
+    }
+
+    private static void rethrowUnlessIOException(final Throwable cause) {
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        if (!(cause instanceof IOException)) {
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private static void awaitTermination(final ExecutorService executor) {
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The <code>Stage</code> interface is the work of a pipeline stage for
+     * one task, which may fail with an <code>IOException</code>.
+     */
+    private interface Stage<T> {
+        T run() throws IOException;
+    }
+
+    /**
+     * Runs a pipeline stage, passing its <code>IOException</code> on to the
+     * future of the task.
+     */
+    private static <T> T call(final Stage<T> stage) {
+        try {
+            return stage.run();
+        } catch (final IOException ioe) {
+            throw new CompletionException(ioe);
+        }
+    }
+
+    private static ExecutorService newExecutor(final int threads, final int capacity, final String name) {
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacity + 1), runnable -> {
+                    final Thread thread = new Thread(runnable, name);
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @SuppressWarnings("EmptyCatchBlock")
+    private static void close(final Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (final IOException ignore) {
+        }
+    }
+
     /**
      * Builds the <code>JavaClass</code> instances from the 
      * specified file.
@@ -67,20 +741,45 @@ public class JavaClassBuilder {
      * @throws IOException in case of I/O problems.
      */
     public Collection<JavaClass> buildClasses(final File file) throws IOException {
-        if (fileManager.acceptClassFile(file)) {
-            try (InputStream is = new BufferedInputStream(new FileInputStream(file))) {
-                final JavaClass parsedClass = parser.parse(is);
-                return Collections.singleton(parsedClass);
-            }
-        } else if (fileManager.acceptJarFile(file)) {
-            try (JarFile jarFile = new JarFile(file)) {
-                return buildClasses(jarFile);
+        if (!fileManager.acceptFile(file)) {
+            throw new IOException("File is not a valid " + ".class, .jar, .war, or .zip file: " + file.getPath());
+        }
+        final Collection<JavaClass> javaClasses = new ArrayList<>();
+        buildClasses(file, javaClasses::add);
+        return javaClasses;
+    }
+
+    private void buildClasses(final File file, final Consumer<JavaClass> consumer) throws IOException {
+        if (fileManager.acceptClassFileName(file.getName())) {
+            consumer.accept(parseClassFile(file));
+        } else if (fileManager.acceptJarFileName(file.getName())) {
+            final AnalysisEvents.Archive event = new AnalysisEvents.Archive();
+            event.begin();
+            if (mapArchive(file)) {
+                try (ZipArchive archive = ZipArchive.open(file)) {
+                    buildClasses(archive, consumer);
+                }
+            } else {
+                try (JarFile jarFile = new JarFile(file)) {
+                    buildClasses(jarFile, consumer);
+                }
             }
+            commit(event, file);
         } else {
             throw new IOException("File is not a valid " + ".class, .jar, .war, or .zip file: " + file.getPath());
         }
     }
 
+    private void commit(final AnalysisEvents.Archive event, final File file) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.path = file.getPath();
+            event.size = file.length();
+            event.memoryMapped = mapArchive(file);
+            event.commit();
+        }
+    }
+
     /**
      * Builds the <code>JavaClass</code> instances from the specified 
      * jar, war, or zip file.
@@ -91,17 +790,289 @@ public class JavaClassBuilder {
      */
     public Collection<JavaClass> buildClasses(final JarFile file) throws IOException {
         final Collection<JavaClass> javaClasses = new ArrayList<>();
+        buildClasses(file, javaClasses::add);
+        return javaClasses;
+    }
 
+    /**
+     * Builds the classes of a jar file. An entry that cannot be read or
+     * parsed is reported, and the remaining entries are still analyzed.
+     */
+    private void buildClasses(final JarFile file, final Consumer<JavaClass> consumer) {
         final Enumeration<JarEntry> entries = file.entries();
         while (entries.hasMoreElements()) {
             final ZipEntry e = entries.nextElement();
-            if (fileManager.acceptClassFileName(e.getName())) {
-                try (InputStream is = new BufferedInputStream(file.getInputStream(e))) {
-                    javaClasses.add(parser.parse(is));
+            try {
+                if (readClassEntry(file.getName(), e.getName())) {
+                    accept(consumer, parseEntry(file.getName(), e.getName(),
+                            read(file.getName(), e.getName(), () -> readEntry(file, e))));
+                } else if (acceptNestedArchive(e.getName(), nestedArchiveDepth)) {
+                    final Inflater inflater = new Inflater(true);
+                    try {
+                        buildNestedClasses(file.getName() + "!/" + e.getName(),
+                                read(file.getName(), e.getName(), () -> readEntry(file, e)),
+                                nestedArchiveDepth - 1, inflater, consumer);
+                    } finally {
+                        inflater.end();
+                    }
                 }
+            } catch (final IOException ioe) {
+                entryFailed(ioe);
             }
         }
+    }
 
-        return javaClasses;
+    private void buildClasses(final ZipArchive archive, final Consumer<JavaClass> consumer) {
+        final Inflater inflater = new Inflater(true);
+        try {
+            buildClasses(archive, nestedArchiveDepth, inflater, consumer);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Builds the classes of an archive. An entry that cannot be read or
+     * parsed is reported, and the remaining entries are still analyzed.
+     */
+    private void buildClasses(
+            final ZipArchive archive,
+            final int depth,
+            final Inflater inflater,
+            final Consumer<JavaClass> consumer
+    ) {
+        for (final ZipArchive.Entry e : archive.getEntries()) {
+            try {
+                if (readClassEntry(archive.getName(), e.getName())) {
+                    final ByteBuffer bytes = read(archive.getName(), e.getName(), () -> archive.read(e, inflater));
+                    accept(consumer, parseEntry(archive.getName(), e.getName(), bytes));
+                } else if (acceptNestedArchive(e.getName(), depth)) {
+                    buildNestedClasses(archive.getName() + "!/" + e.getName(),
+                            read(archive.getName(), e.getName(), () -> archive.read(e, inflater)),
+                            depth - 1, inflater, consumer);
+                }
+            } catch (final IOException ioe) {
+                entryFailed(ioe);
+            }
+        }
+    }
+
+    /**
+     * Builds the classes of a nested archive. A nested archive that cannot
+     * be read is reported like a top-level file, so that the classes of the
+     * enclosing archive are still analyzed.
+     */
+    private void buildNestedClasses(
+            final String name,
+            final ByteBuffer bytes,
+            final int depth,
+            final Inflater inflater,
+            final Consumer<JavaClass> consumer
+    ) {
+        try {
+            buildClasses(new ZipArchive(name, bytes), depth, inflater, consumer);
+        } catch (final IOException ioe) {
+            entryFailed(ioe);
+        }
+    }
+
+    /**
+     * Reports an archive entry which could not be built. The archive is not
+     * cached, so that the failure is reported again by the next build.
+     */
+    private void entryFailed(final IOException ioe) {
+        entryFailures++;
+        System.err.println("\n" + ioe.getMessage());
+    }
+
+    /**
+     * Indicates whether an archive entry is a class file which may belong
+     * to a package accepted by the filter. Entries of filtered packages
+     * are not read if their path tells their package.
+     */
+    private boolean acceptClassEntry(final String archive, final String name) {
+        return fileManager.acceptClassFileName(name)
+                && (!isPackagePath(archive, name) || parser.getFilter().accept(entryPackageName(name)));
+    }
+
+    /**
+     * Indicates whether an archive entry of a build is read as a class
+     * file, and counts the class files skipped as their package is filtered.
+     */
+    private boolean readClassEntry(final String archive, final String name) {
+        final boolean accept = acceptClassEntry(archive, name);
+        if (!accept && statistics != null && fileManager.acceptClassFileName(name)) {
+            statistics.addEntrySkipped();
+        }
+        return accept;
+    }
+
+    /**
+     * Indicates whether the path of a class file entry of an archive is
+     * known to be the path of its package: in a jar, whose root is the root
+     * of its packages, and in the class directories of web applications and
+     * Spring Boot archives. The entries of other archives, such as a zip
+     * file with a directory of classes, tell their package themselves.
+     *
+     * @param archive Name of the archive.
+     * @param name Entry name.
+     * @return <code>true</code> if the package of the entry is told by its path.
+     */
+    static boolean isPackagePath(final String archive, final String name) {
+        if (archive.toLowerCase().endsWith(".jar")) {
+            return true;
+        }
+        for (final String directory : CLASS_DIRECTORIES) {
+            if (name.startsWith(directory)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the package name of a class file entry of an archive.
+     * The class directories of web applications and Spring Boot archives
+     * and the version directories of multi-release jars are not part of it.
+     *
+     * @param name Entry name.
+     * @return Package name.
+     */
+    static String entryPackageName(final String name) {
+        int start = 0;
+        for (final String directory : CLASS_DIRECTORIES) {
+            if (name.startsWith(directory)) {
+                start = directory.length();
+            }
+        }
+        if (name.startsWith(VERSIONS_DIRECTORY)) {
+            final int version = name.indexOf('/', VERSIONS_DIRECTORY.length());
+            if (version > VERSIONS_DIRECTORY.length()) {
+                start = version + 1;
+            }
+        }
+        final int end = name.lastIndexOf('/');
+        if (end <= start) {
+            return SymbolTable.DEFAULT_PACKAGE;
+        }
+        return name.substring(start, end).replace('/', '.');
+    }
+
+    private boolean acceptNestedArchive(final String name, final int depth) {
+        return depth > 0 && fileManager.acceptJarFileName(name);
+    }
+
+    /**
+     * Passes the files of the scan of the file manager to the specified
+     * sink. The time the calling thread waits for the next file is
+     * recorded as the scan phase, the time of the sink is not.
+     */
+    private void scan(final Consumer<File> sink) {
+        final AnalysisStatistics.Recorder recorder = statistics;
+        if (recorder == null) {
+            fileManager.scan(sink);
+            return;
+        }
+        final long[] start = {System.nanoTime(), recorder.cpuTime()};
+        fileManager.scan(file -> {
+            recorder.add(AnalysisStatistics.Phase.SCAN, start[0], start[1]);
+            sink.accept(file);
+            start[0] = System.nanoTime();
+            start[1] = recorder.cpuTime();
+        });
+        recorder.add(AnalysisStatistics.Phase.SCAN, start[0], start[1]);
+    }
+
+    private JavaClass parseClassFile(final File file) throws IOException {
+        return parse(file.getPath(), read(file.getPath(), null, () -> readFile(file)));
+    }
+
+    /**
+     * Parses a class file entry of an archive. An entry whose path is not
+     * known to be the path of its package was read to tell its package;
+     * if the filter does not accept that package, it is skipped now.
+     *
+     * @param archive Name of the archive.
+     * @param name Entry name.
+     * @return The class, or <code>null</code> if the entry is skipped.
+     */
+    private JavaClass parseEntry(final String archive, final String name, final ByteBuffer bytes) throws IOException {
+        final JavaClass javaClass = parse(name, bytes);
+        if (isPackagePath(archive, name) || parser.getFilter().accept(javaClass.getPackageName())) {
+            return javaClass;
+        }
+        if (statistics != null) {
+            statistics.addEntrySkipped();
+        }
+        return null;
+    }
+
+    private static void accept(final Consumer<JavaClass> consumer, final JavaClass javaClass) {
+        if (javaClass != null) {
+            consumer.accept(javaClass);
+        }
+    }
+
+    /**
+     * Reads a class file or an archive entry, recording the time and the
+     * bytes read if statistics are recorded.
+     *
+     * @param path Path of the file or archive.
+     * @param entry Name of the archive entry, or <code>null</code> for a class file.
+     */
+    private ByteBuffer read(final String path, final String entry, final Stage<ByteBuffer> read) throws IOException {
+        final AnalysisStatistics.Recorder recorder = statistics;
+        final long wallStart = recorder != null ? System.nanoTime() : 0;
+        final long cpuStart = recorder != null ? recorder.cpuTime() : 0;
+        final AnalysisEvents.ClassRead event = new AnalysisEvents.ClassRead();
+        event.begin();
+        final ByteBuffer bytes = read.run();
+        event.end();
+        if (event.shouldCommit()) {
+            event.path = path;
+            event.entry = entry;
+            event.size = bytes.remaining();
+            event.commit();
+        }
+        if (recorder != null) {
+            recorder.add(AnalysisStatistics.Phase.READ, wallStart, cpuStart);
+            recorder.addBytesRead(bytes.remaining());
+        }
+        return bytes;
+    }
+
+    /**
+     * Parses a class file, recording the time and the outcome if
+     * statistics are recorded.
+     *
+     * @param name Path of the class file or name of the archive entry.
+     */
+    private JavaClass parse(final String name, final ByteBuffer bytes) throws IOException {
+        final AnalysisStatistics.Recorder recorder = statistics;
+        if (recorder == null) {
+            return parser.parse(name, bytes);
+        }
+        final long wallStart = System.nanoTime();
+        final long cpuStart = recorder.cpuTime();
+        try {
+            final JavaClass javaClass = parser.parse(name, bytes);
+            recorder.addClassParsed();
+            return javaClass;
+        } catch (final IOException ioe) {
+            recorder.addParseFailure();
+            throw ioe;
+        } finally {
+            recorder.add(AnalysisStatistics.Phase.PARSE, wallStart, cpuStart);
+        }
+    }
+
+    private static ByteBuffer readFile(final File file) throws IOException {
+        return ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+    }
+
+    private static ByteBuffer readEntry(final JarFile file, final ZipEntry entry) throws IOException {
+        try (InputStream is = file.getInputStream(entry)) {
+            return ByteBuffer.wrap(is.readAllBytes());
+        }
     }
 }
@@ -13,9 +13,16 @@ public class JavaPackage {
     private final String name;
     private int volatility;
     private final Set<JavaClass> classes;
-    private List<JavaPackage> afferents;
-    private List<JavaPackage> efferents;
+    private Set<String> summarizedClasses;
+    private int summarizedAbstractClasses;
+    private PackageSet afferents;
+    private PackageSet efferents;
 
+    /**
+     * The id of a canonical package in the <code>SymbolTable</code>
+     * that created it, or <code>-1</code>.
+     */
+    int symbolId = -1;
 
     public JavaPackage(final String name) {
         this(name, 1);
@@ -25,8 +32,8 @@ public class JavaPackage {
         this.name = name;
         setVolatility(volatility);
         classes = new HashSet<>();
-        afferents = new ArrayList<>();
-        efferents = new ArrayList<>();
+        afferents = new PackageSet();
+        efferents = new PackageSet();
     }
 
     public String getName() {
@@ -47,19 +54,36 @@ public class JavaPackage {
         this.volatility = volatility;
     }
 
+    /**
+     * Indicates whether a package dependency cycle can be reached from
+     * this package. Every call analyzes the packages reachable from this
+     * one; use <code>JDepend.analyzeCycles()</code> to answer this for many
+     * packages at once.
+     *
+     * @return <code>true</code> if a cycle exist; <code>false</code> otherwise.
+     */
     public boolean containsCycle() {
-        return collectCycle(new ArrayList<>());
+        return new CycleAnalysis(Collections.singleton(this)).reachesCycle(this);
     }
 
     /**
      * Collects the packages participating in the first package dependency cycle
      * detected which originates from this package.
      *
+     * <p>For an empty list, the path is computed by a <code>CycleAnalysis</code>
+     * in linear time. A non-empty list is taken as the path leading to this
+     * package and is extended by a depth-first search.
+     *
      * @param list Collecting object to be populated with the list of
      *             JavaPackage instances in a cycle.
      * @return <code>true</code> if a cycle exist; <code>false</code> otherwise.
      */
     public boolean collectCycle(final List<JavaPackage> list) {
+        if (list.isEmpty()) {
+            list.addAll(new CycleAnalysis(Collections.singleton(this)).getCyclePath(this));
+            return !list.isEmpty();
+        }
+
         if (list.contains(this)) {
             list.add(this);
             return true;
@@ -83,7 +107,8 @@ public class JavaPackage {
      * which originates from this package.
      *
      * <p>This is a more exhaustive search than that employed by
-     * <code>collectCycle</code>.
+     * <code>collectCycle</code>. It does not list the individual cycles;
+     * use <code>CycleEnumerator</code> for that.
      *
      * @param list Collecting object to be populated with the list of
      *             JavaPackage instances in a cycle.
@@ -117,16 +142,41 @@ public class JavaPackage {
         classes.add(clazz);
     }
 
+    /**
+     * Counts the specified class without keeping it, for analyses that
+     * need class-level detail only for some packages. A class that was
+     * counted is not returned by <code>getClasses()</code>, but it is
+     * included in the class counts and metrics of this package.
+     *
+     * @param clazz Java class.
+     */
+    public void addClassSummary(final JavaClass clazz) {
+        if (summarizedClasses == null) {
+            summarizedClasses = new HashSet<>();
+        }
+        if (summarizedClasses.add(clazz.getClassName()) && clazz.isAbstract()) {
+            summarizedAbstractClasses++;
+        }
+    }
+
+    /**
+     * @return The classes of this package, without the classes added
+     *         through <code>addClassSummary()</code>.
+     */
     public Collection<JavaClass> getClasses() {
         return classes;
     }
 
     public int getClassCount() {
-        return classes.size();
+        return classes.size() + summarizedClassCount();
+    }
+
+    private int summarizedClassCount() {
+        return summarizedClasses == null ? 0 : summarizedClasses.size();
     }
 
     public int getAbstractClassCount() {
-        int count = 0;
+        int count = summarizedAbstractClasses;
 
         for (final JavaClass clazz : classes) {
             if (clazz.isAbstract()) {
@@ -138,7 +188,7 @@ public class JavaPackage {
     }
 
     public int getConcreteClassCount() {
-        int count = 0;
+        int count = summarizedClassCount() - summarizedAbstractClasses;
 
         for (final JavaClass clazz : classes) {
             if (!clazz.isAbstract()) {
@@ -166,31 +216,43 @@ public class JavaPackage {
      * @param javaPackage Java package.
      */
     public void addAfferent(final JavaPackage javaPackage) {
-        if (!javaPackage.getName().equals(getName()) && !afferents.contains(javaPackage)) {
-            afferents.add(javaPackage);
+        if (!javaPackage.getName().equals(getName())) {
+            afferents.insert(javaPackage);
         }
     }
 
+    /**
+     * Returns a read-only view of the afferents in the order they were added.
+     * Looking up a package in the view takes constant time.
+     *
+     * @return Afferents of this package.
+     */
     public Collection<JavaPackage> getAfferents() {
         return afferents;
     }
 
     public void setAfferents(final Collection<JavaPackage> afferents) {
-        this.afferents = new ArrayList<>(afferents);
+        this.afferents = new PackageSet(afferents);
     }
 
     public void addEfferent(final JavaPackage javaPackage) {
-        if (!javaPackage.getName().equals(getName()) && !efferents.contains(javaPackage)) {
-            efferents.add(javaPackage);
+        if (!javaPackage.getName().equals(getName())) {
+            efferents.insert(javaPackage);
         }
     }
 
+    /**
+     * Returns a read-only view of the efferents in the order they were added.
+     * Looking up a package in the view takes constant time.
+     *
+     * @return Efferents of this package.
+     */
     public Collection<JavaPackage> getEfferents() {
         return efferents;
     }
 
     public void setEfferents(final Collection<JavaPackage> efferents) {
-        this.efferents = new ArrayList<>(efferents);
+        this.efferents = new PackageSet(efferents);
     }
 
     /**
@@ -4,77 +4,109 @@ import java.io.*;
 import java.util.*;
 
 /**
- * The <code>PackageFilter</code> class is used to filter imported 
+ * The <code>PackageFilter</code> class is used to filter imported
  * package names.
  *
  * <p>The default filter contains any packages declared in the
- * <code>jdepend.properties</code> file, if such a file exists 
+ * <code>jdepend.properties</code> file, if such a file exists
  * either in the user's home directory or somewhere in the classpath.
- * 
+ *
+ * <p>A filter holds package name prefixes to exclude and, optionally,
+ * prefixes to include. A package name is decided by the longest prefix
+ * that matches it: it is rejected if that prefix is excluded and accepted
+ * if it is included. A package name no prefix matches is accepted unless
+ * includes are configured. A prefix that is both excluded and included
+ * is excluded.
+ *
+ * <p>The prefixes are compiled into a trie, so that deciding a name takes
+ * time proportional to its length rather than to the number of prefixes,
+ * and recent decisions are remembered in a small cache.
+ *
  * @author <b>Mike Clark</b>
  * @author Clarkware Consulting, Inc.
  */
 public class PackageFilter {
 
-    private final Collection<String> filtered;
+    private static final int DECISION_CACHE_SIZE = 1024;
+
+    private final Collection<String> filtered = new ArrayList<>();
+    private final Collection<String> included = new ArrayList<>();
+    private volatile Matcher matcher;
 
     /**
-     * Constructs a <code>PackageFilter</code> instance containing 
-     * the filters specified in the <code>jdepend.properties</code> file, 
+     * Constructs a <code>PackageFilter</code> instance containing
+     * the filters specified in the <code>jdepend.properties</code> file,
      * if it exists.
      */
     public PackageFilter() {
-        this(new ArrayList<>());
-        final PropertyConfigurator config = new PropertyConfigurator();
-        addPackages(config.getFilteredPackages());
+        this(new PropertyConfigurator());
     }
 
     /**
-     * Constructs a <code>PackageFilter</code> instance containing 
+     * Constructs a <code>PackageFilter</code> instance containing
      * the filters contained in the specified file.
-     * 
+     *
      * @param f Property file.
      */
     public PackageFilter(final File f) {
-        this(new ArrayList<>());
-        final PropertyConfigurator config = new PropertyConfigurator(f);
-        addPackages(config.getFilteredPackages());
+        this(new PropertyConfigurator(f));
+    }
+
+    private PackageFilter(final PropertyConfigurator config) {
+        this(config.getFilteredPackages());
+        addIncludes(config.getIncludedPackages());
     }
 
     /**
-     * Constructs a <code>PackageFilter</code> instance with the 
+     * Constructs a <code>PackageFilter</code> instance with the
      * specified collection of package names to filter.
-     * 
+     *
      * @param packageNames Package names to filter.
      */
     public PackageFilter(final Collection<String> packageNames) {
-        filtered = new ArrayList<>();
         addPackages(packageNames);
     }
 
     /**
      * Returns the collection of filtered package names.
-     * 
+     * Use <code>addPackage()</code> to add to it.
+     *
      * @return Filtered package names.
      */
-    public Collection<String> getFilters() {
-        return filtered;
+    public synchronized Collection<String> getFilters() {
+        return Collections.unmodifiableList(new ArrayList<>(filtered));
+    }
+
+    /**
+     * Returns the collection of included package names.
+     * Use <code>addInclude()</code> to add to it.
+     *
+     * @return Included package names.
+     */
+    public synchronized Collection<String> getIncludes() {
+        return Collections.unmodifiableList(new ArrayList<>(included));
     }
 
     /**
      * Indicates whether the specified package name passes this package filter.
-     * 
+     *
      * @param packageName Package name.
      * @return <code>true</code> if the package name should be included;
      *         <code>false</code> otherwise.
      */
     public boolean accept(final String packageName) {
-        for (final String nameToFilter : getFilters()) {
-            if (packageName.startsWith(nameToFilter)) {
-                return false;
-            }
+        Matcher current = matcher;
+        if (current == null) {
+            current = compile();
         }
-        return true;
+        return current.accept(packageName);
+    }
+
+    private synchronized Matcher compile() {
+        if (matcher == null) {
+            matcher = new Matcher(filtered, included);
+        }
+        return matcher;
     }
 
     public void addPackages(final Collection<String> packageNames) {
@@ -83,13 +115,141 @@ public class PackageFilter {
         }
     }
 
-    public void addPackage(String packageName) {
+    public synchronized void addPackage(final String packageName) {
+        add(packageName, filtered);
+    }
+
+    /**
+     * Adds the specified package names to the included package names.
+     *
+     * @param packageNames Package names to include.
+     */
+    public void addIncludes(final Collection<String> packageNames) {
+        for (final String packageName : packageNames) {
+            addInclude(packageName);
+        }
+    }
+
+    /**
+     * Adds the specified package name to the included package names.
+     * Once a package name is included, only package names matching an
+     * included name are accepted.
+     *
+     * @param packageName Package name, optionally ending with <code>*</code>.
+     */
+    public synchronized void addInclude(final String packageName) {
+        add(packageName, included);
+    }
+
+    private void add(String packageName, final Collection<String> names) {
         if (packageName.endsWith("*")) {
             packageName = packageName.substring(0, packageName.length() - 1);
         }
 
         if (packageName.length() > 0) {
-            getFilters().add(packageName);
+            names.add(packageName);
+            matcher = null;
+        }
+    }
+
+    /**
+     * The <code>Matcher</code> class is the compiled form of a filter.
+     * It does not change once it has been built, except for its decision
+     * cache, whose slots hold immutable entries and are replaced as a whole,
+     * so that it can be shared by parser threads without locking.
+     */
+    private static final class Matcher {
+        private static final byte NONE = 0;
+        private static final byte INCLUDE = 1;
+        private static final byte EXCLUDE = 2;
+
+        private final Node root = new Node();
+        private final boolean acceptUnmatched;
+        private final Decision[] decisions = new Decision[DECISION_CACHE_SIZE];
+
+        Matcher(final Collection<String> excluded, final Collection<String> included) {
+            for (final String prefix : included) {
+                root.add(prefix, 0, INCLUDE);
+            }
+            for (final String prefix : excluded) {
+                root.add(prefix, 0, EXCLUDE);
+            }
+            acceptUnmatched = included.isEmpty();
+        }
+
+        boolean accept(final String packageName) {
+            final int slot = packageName.hashCode() & (DECISION_CACHE_SIZE - 1);
+            final Decision cached = decisions[slot];
+            if (cached != null && cached.packageName.equals(packageName)) {
+                return cached.accept;
+            }
+            final boolean accept = decide(packageName);
+            decisions[slot] = new Decision(packageName, accept);
+            return accept;
+        }
+
+        private boolean decide(final String packageName) {
+            byte match = NONE;
+            Node node = root;
+            for (int i = 0; i < packageName.length() && node != null; i++) {
+                node = node.child(packageName.charAt(i));
+                if (node != null && node.mark != NONE) {
+                    match = node.mark;
+                }
+            }
+            return match == NONE ? acceptUnmatched : match == INCLUDE;
+        }
+    }
+
+    /**
+     * The <code>Node</code> class is a trie node. Its children are kept
+     * sorted by character and are found by binary search.
+     */
+    private static final class Node {
+        private char[] keys = new char[0];
+        private Node[] children = new Node[0];
+        private byte mark;
+
+        void add(final String prefix, final int index, final byte mark) {
+            if (index == prefix.length()) {
+                this.mark = (byte) Math.max(this.mark, mark);
+                return;
+            }
+            final char c = prefix.charAt(index);
+            int position = Arrays.binarySearch(keys, c);
+            if (position < 0) {
+                position = -position - 1;
+                keys = insert(keys, position, c);
+                final Node[] grown = new Node[children.length + 1];
+                System.arraycopy(children, 0, grown, 0, position);
+                System.arraycopy(children, position, grown, position + 1, children.length - position);
+                grown[position] = new Node();
+                children = grown;
+            }
+            children[position].add(prefix, index + 1, mark);
+        }
+
+        private static char[] insert(final char[] array, final int position, final char c) {
+            final char[] grown = new char[array.length + 1];
+            System.arraycopy(array, 0, grown, 0, position);
+            System.arraycopy(array, position, grown, position + 1, array.length - position);
+            grown[position] = c;
+            return grown;
+        }
+
+        Node child(final char c) {
+            final int position = Arrays.binarySearch(keys, c);
+            return position >= 0 ? children[position] : null;
+        }
+    }
+
+    private static final class Decision {
+        private final String packageName;
+        private final boolean accept;
+
+        Decision(final String packageName, final boolean accept) {
+            this.packageName = packageName;
+            this.accept = accept;
         }
     }
 }
@@ -0,0 +1,164 @@
+package jdepend.framework;
+
+import java.util.*;
+
+/**
+ * The <code>PackageGraph</code> class is a frozen, indexed copy of the
+ * dependencies between packages.
+ *
+ * <p>The graph holds the specified packages and all packages reachable
+ * through their efferents. Every package is identified by a dense integer
+ * id, in the order it was found, and the efferents and afferents of all
+ * packages are stored as ids in compressed sparse row form: one array of
+ * targets, and one array of offsets into it per package.
+ *
+ * <p>Afferents outside the graph are left out. The graph does not reflect
+ * dependencies added to the packages after it was created.
+ */
+public final class PackageGraph {
+
+    private final Map<JavaPackage, Integer> ids = new HashMap<>();
+    private final List<JavaPackage> packages = new ArrayList<>();
+    private final int[] efferentOffsets;
+    private final int[] efferentTargets;
+    private final int[] afferentOffsets;
+    private final int[] afferentTargets;
+
+    /**
+     * Freezes the graph of the specified packages and all packages they depend upon.
+     *
+     * @param roots Packages.
+     */
+    public PackageGraph(final Collection<JavaPackage> roots) {
+        for (final JavaPackage javaPackage : roots) {
+            id(javaPackage);
+        }
+
+        // Packages found through efferents are appended and visited in turn
+        int[] offsets = new int[packages.size() + 1];
+        int[] targets = new int[packages.size()];
+        int count = 0;
+        for (int id = 0; id < packages.size(); id++) {
+            final Collection<JavaPackage> efferents = packages.get(id).getEfferents();
+            if (count + efferents.size() > targets.length) {
+                targets = Arrays.copyOf(targets, Math.max(count + efferents.size(), targets.length * 2));
+            }
+            for (final JavaPackage efferent : efferents) {
+                targets[count++] = id(efferent);
+            }
+            if (id + 2 > offsets.length) {
+                offsets = Arrays.copyOf(offsets, Math.max(id + 2, offsets.length * 2));
+            }
+            offsets[id + 1] = count;
+        }
+        efferentOffsets = Arrays.copyOf(offsets, packages.size() + 1);
+        efferentTargets = Arrays.copyOf(targets, count);
+
+        afferentOffsets = new int[packages.size() + 1];
+        targets = new int[count];
+        count = 0;
+        for (int id = 0; id < packages.size(); id++) {
+            for (final JavaPackage afferent : packages.get(id).getAfferents()) {
+                final Integer source = ids.get(afferent);
+                if (source != null) {
+                    if (count == targets.length) {
+                        targets = Arrays.copyOf(targets, Math.max(4, count * 2));
+                    }
+                    targets[count++] = source;
+                }
+            }
+            afferentOffsets[id + 1] = count;
+        }
+        afferentTargets = Arrays.copyOf(targets, count);
+    }
+
+    private int id(final JavaPackage javaPackage) {
+        Integer id = ids.get(javaPackage);
+        if (id == null) {
+            id = packages.size();
+            ids.put(javaPackage, id);
+            packages.add(javaPackage);
+        }
+        return id;
+    }
+
+    /**
+     * @return The number of packages in the graph.
+     */
+    public int size() {
+        return packages.size();
+    }
+
+    /**
+     * Returns the package with the specified id.
+     *
+     * @param id Package id.
+     * @return Package.
+     */
+    public JavaPackage getPackage(final int id) {
+        return packages.get(id);
+    }
+
+    /**
+     * Returns the id of the specified package.
+     *
+     * @param javaPackage Package.
+     * @return Package id, or <code>-1</code> if the package is not in the graph.
+     */
+    public int indexOf(final JavaPackage javaPackage) {
+        final Integer id = ids.get(javaPackage);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Returns the ids of the efferents of a package, in the order they were added.
+     *
+     * @param id Package id.
+     * @return Efferent ids.
+     */
+    public int[] getEfferents(final int id) {
+        return Arrays.copyOfRange(efferentTargets, efferentOffsets[id], efferentOffsets[id + 1]);
+    }
+
+    /**
+     * Returns the ids of the afferents of a package within the graph,
+     * in the order they were added.
+     *
+     * @param id Package id.
+     * @return Afferent ids.
+     */
+    public int[] getAfferents(final int id) {
+        return Arrays.copyOfRange(afferentTargets, afferentOffsets[id], afferentOffsets[id + 1]);
+    }
+
+    /**
+     * Indicates whether a package depends upon another one directly.
+     *
+     * @param from Package id.
+     * @param to Package id.
+     * @return <code>true</code> if <code>to</code> is an efferent of <code>from</code>.
+     */
+    public boolean dependsUpon(final int from, final int to) {
+        for (int i = efferentOffsets[from]; i < efferentOffsets[from + 1]; i++) {
+            if (efferentTargets[i] == to) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return The offsets of the efferents of every package into
+     *         <code>efferentTargets()</code>, followed by the total count.
+     */
+    int[] efferentOffsets() {
+        return efferentOffsets;
+    }
+
+    /**
+     * @return The efferent ids of all packages.
+     */
+    int[] efferentTargets() {
+        return efferentTargets;
+    }
+}
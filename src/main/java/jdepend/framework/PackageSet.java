@@ -0,0 +1,152 @@
+package jdepend.framework;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * The <code>PackageSet</code> class holds the afferents or efferents of a
+ * <code>JavaPackage</code> in the order they were added.
+ *
+ * <p>Packages are kept in an array. Small sets are searched linearly;
+ * once a set grows beyond a few packages, an open-addressing index of
+ * array positions makes <code>contains()</code> and <code>add()</code>
+ * take constant time, so that hub packages with thousands of afferents
+ * do not slow down building the graph.
+ *
+ * <p>The set itself is read-only; packages are added through
+ * <code>insert()</code> by the owning package.
+ */
+final class PackageSet extends AbstractSet<JavaPackage> {
+
+    private static final JavaPackage[] EMPTY = new JavaPackage[0];
+    private static final int LINEAR_SEARCH_LIMIT = 8;
+
+    private JavaPackage[] elements = EMPTY;
+    private int size;
+    private int[] index;
+
+    PackageSet() {
+    }
+
+    PackageSet(final Collection<JavaPackage> packages) {
+        for (final JavaPackage javaPackage : packages) {
+            insert(javaPackage);
+        }
+    }
+
+    /**
+     * Adds the specified package unless an equal package is already contained.
+     *
+     * @param javaPackage Java package.
+     * @return <code>true</code> if the package was added.
+     */
+    boolean insert(final JavaPackage javaPackage) {
+        if (contains(javaPackage)) {
+            return false;
+        }
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, Math.max(4, size * 2));
+        }
+        elements[size++] = javaPackage;
+        if (index != null && size * 2 > index.length) {
+            rehash(index.length * 2);
+        } else if (index != null) {
+            addToIndex(size - 1);
+        } else if (size > LINEAR_SEARCH_LIMIT) {
+            rehash(Integer.highestOneBit(size) * 4);
+        }
+        return true;
+    }
+
+    private void rehash(final int capacity) {
+        index = new int[capacity];
+        for (int i = 0; i < size; i++) {
+            addToIndex(i);
+        }
+    }
+
+    /**
+     * Stores position + 1 of an element in its slot; <code>0</code> marks an empty slot.
+     */
+    private void addToIndex(final int position) {
+        final int mask = index.length - 1;
+        int slot = spread(elements[position].hashCode()) & mask;
+        while (index[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        index[slot] = position + 1;
+    }
+
+    private static int spread(final int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    @Override
+    public boolean contains(final Object o) {
+        if (!(o instanceof JavaPackage)) {
+            return false;
+        }
+        if (index == null) {
+            for (int i = 0; i < size; i++) {
+                if (elements[i].equals(o)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        final int mask = index.length - 1;
+        int slot = spread(o.hashCode()) & mask;
+        while (index[slot] != 0) {
+            if (elements[index[slot] - 1].equals(o)) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * @return The package at the specified position, in insertion order.
+     */
+    JavaPackage get(final int position) {
+        if (position >= size) {
+            throw new IndexOutOfBoundsException("Position: " + position + ", size: " + size);
+        }
+        return elements[position];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The number of array slots this set holds, used or not.
+     */
+    int capacity() {
+        return elements.length + (index != null ? index.length : 0);
+    }
+
+    @Override
+    public Iterator<JavaPackage> iterator() {
+        return new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public JavaPackage next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                return elements[next++];
+            }
+        };
+    }
+}
@@ -0,0 +1,524 @@
+package jdepend.framework;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * The <code>PackageSnapshot</code> class is a read-only, compact binary
+ * image of analyzed packages, their classes and their dependencies.
+ *
+ * <p>A snapshot is written with <code>write()</code> after the packages
+ * have been analyzed, and is memory-mapped by <code>load()</code>.
+ * Names are interned in a string table, and the dependencies are stored
+ * as int arrays in compressed sparse row form, so loading a snapshot
+ * neither parses class files nor creates objects per package.
+ * Packages are identified by their index, in the order of their names.
+ * <code>toPackages()</code> turns a snapshot back into
+ * <code>JavaPackage</code> instances for the existing reports.
+ *
+ * <p>The file starts with a header of ten ints: magic, version and the
+ * number of packages, classes, efferents, afferents, imports, strings,
+ * string bytes and a reserved zero. The header is followed by the int
+ * arrays in the order of the section fields of this class, and then by
+ * the UTF-8 bytes of the string table.
+ */
+public final class PackageSnapshot {
+
+    static final int MAGIC = 0x4A44534E;
+    static final int VERSION = 1;
+    private static final int HEADER_INTS = 10;
+    private static final int ABSTRACT = 1;
+
+    private final ByteBuffer buffer;
+    private final int packageCount;
+    private final int classCount;
+    private final int stringCount;
+    private final int packageNames;
+    private final int packageVolatilities;
+    private final int packageClasses;
+    private final int efferentStarts;
+    private final int efferentTargets;
+    private final int afferentStarts;
+    private final int afferentTargets;
+    private final int classNames;
+    private final int classPackageNames;
+    private final int classSourceFiles;
+    private final int classFlags;
+    private final int importStarts;
+    private final int importNames;
+    private final int stringStarts;
+    private final int stringBytes;
+    private final String[] strings;
+
+    private PackageSnapshot(final ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.remaining() < HEADER_INTS * 4 || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a package snapshot");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported package snapshot version: " + buffer.getInt(4));
+        }
+        packageCount = count(2);
+        classCount = count(3);
+        final int efferentCount = count(4);
+        final int afferentCount = count(5);
+        final int importCount = count(6);
+        stringCount = count(7);
+        final int stringByteCount = count(8);
+
+        long offset = HEADER_INTS * 4;
+        packageNames = (int) offset;
+        offset += 4L * packageCount;
+        packageVolatilities = (int) offset;
+        offset += 4L * packageCount;
+        packageClasses = (int) offset;
+        offset += 4L * (packageCount + 1);
+        efferentStarts = (int) offset;
+        offset += 4L * (packageCount + 1);
+        efferentTargets = (int) offset;
+        offset += 4L * efferentCount;
+        afferentStarts = (int) offset;
+        offset += 4L * (packageCount + 1);
+        afferentTargets = (int) offset;
+        offset += 4L * afferentCount;
+        classNames = (int) offset;
+        offset += 4L * classCount;
+        classPackageNames = (int) offset;
+        offset += 4L * classCount;
+        classSourceFiles = (int) offset;
+        offset += 4L * classCount;
+        classFlags = (int) offset;
+        offset += 4L * classCount;
+        importStarts = (int) offset;
+        offset += 4L * (classCount + 1);
+        importNames = (int) offset;
+        offset += 4L * importCount;
+        stringStarts = (int) offset;
+        offset += 4L * (stringCount + 1);
+        stringBytes = (int) offset;
+        offset += stringByteCount;
+
+        if (offset != buffer.limit()) {
+            throw new IOException("Corrupt package snapshot");
+        }
+        strings = new String[stringCount];
+    }
+
+    private int count(final int headerIndex) throws IOException {
+        final int count = buffer.getInt(4 * headerIndex);
+        if (count < 0 || count > buffer.limit()) {
+            throw new IOException("Corrupt package snapshot");
+        }
+        return count;
+    }
+
+    /**
+     * Memory-maps the specified snapshot file.
+     *
+     * @param file Snapshot file.
+     * @return Snapshot.
+     * @throws IOException if the file cannot be read or is not a valid snapshot.
+     */
+    public static PackageSnapshot load(final File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), READ)) {
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Reads a snapshot from the remaining bytes of the specified buffer.
+     * The buffer must not be modified while the snapshot is in use.
+     *
+     * @param buffer Snapshot bytes.
+     * @return Snapshot.
+     * @throws IOException if the bytes are not a valid snapshot.
+     */
+    public static PackageSnapshot read(final ByteBuffer buffer) throws IOException {
+        try {
+            return new PackageSnapshot(buffer.slice());
+        } catch (final BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Corrupt package snapshot", e);
+        }
+    }
+
+    /**
+     * Writes a snapshot of the specified packages and of all packages they
+     * depend upon or are depended upon by.
+     *
+     * The snapshot is written to a temporary file which then replaces the
+     * snapshot file, so that an interrupted write never leaves a truncated
+     * snapshot behind.
+     *
+     * @param packages Analyzed packages.
+     * @param file Snapshot file.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void write(final Collection<JavaPackage> packages, final File file) throws IOException {
+        final File directory = file.getAbsoluteFile().getParentFile();
+        if (directory != null) {
+            Files.createDirectories(directory.toPath());
+        }
+        final File temporary = File.createTempFile(file.getName(), ".tmp", directory);
+        try {
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(temporary))) {
+                write(packages, out);
+            }
+            Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary.toPath());
+        }
+    }
+
+    /**
+     * Writes a snapshot of the specified packages to a stream.
+     *
+     * @param packages Analyzed packages.
+     * @param out Output stream, which is not closed.
+     * @throws IOException if the stream cannot be written.
+     */
+    public static void write(final Collection<JavaPackage> packages, final OutputStream out) throws IOException {
+        new SnapshotWriter(packages).write(new DataOutputStream(out));
+    }
+
+    public int getPackageCount() {
+        return packageCount;
+    }
+
+    /**
+     * @return The total number of classes of all packages.
+     */
+    public int getClassCount() {
+        return classCount;
+    }
+
+    public int getClassCount(final int packageIndex) {
+        return length(packageClasses, checkPackage(packageIndex));
+    }
+
+    public String getPackageName(final int packageIndex) {
+        return string(intAt(packageNames, checkPackage(packageIndex)));
+    }
+
+    /**
+     * Returns the index of the package of the specified name.
+     *
+     * @param name Package name.
+     * @return Package index, or <code>-1</code> if the snapshot has no such package.
+     */
+    public int indexOf(final String name) {
+        int low = 0;
+        int high = packageCount - 1;
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            final int comparison = getPackageName(middle).compareTo(name);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    public int getVolatility(final int packageIndex) {
+        return intAt(packageVolatilities, checkPackage(packageIndex));
+    }
+
+    /**
+     * @return The indexes of the packages the specified package depends upon, in dependency order.
+     */
+    public int[] getEfferents(final int packageIndex) {
+        return slice(efferentStarts, efferentTargets, checkPackage(packageIndex));
+    }
+
+    /**
+     * @return The indexes of the packages depending upon the specified package, in dependency order.
+     */
+    public int[] getAfferents(final int packageIndex) {
+        return slice(afferentStarts, afferentTargets, checkPackage(packageIndex));
+    }
+
+    public int afferentCoupling(final int packageIndex) {
+        return length(afferentStarts, checkPackage(packageIndex));
+    }
+
+    public int efferentCoupling(final int packageIndex) {
+        return length(efferentStarts, checkPackage(packageIndex));
+    }
+
+    public int getAbstractClassCount(final int packageIndex) {
+        final int start = intAt(packageClasses, checkPackage(packageIndex));
+        final int end = intAt(packageClasses, packageIndex + 1);
+        int count = 0;
+        for (int i = start; i < end; i++) {
+            if ((intAt(classFlags, i) & ABSTRACT) != 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return Instability (0-1), as computed by <code>JavaPackage</code>.
+     */
+    public float instability(final int packageIndex) {
+        final float totalCoupling = (float) efferentCoupling(packageIndex) + (float) afferentCoupling(packageIndex);
+        if (totalCoupling > 0) {
+            return efferentCoupling(packageIndex) / totalCoupling;
+        }
+        return 0;
+    }
+
+    /**
+     * @return Abstractness (0-1), as computed by <code>JavaPackage</code>.
+     */
+    public float abstractness(final int packageIndex) {
+        final int classes = getClassCount(packageIndex);
+        if (classes > 0) {
+            return (float) getAbstractClassCount(packageIndex) / (float) classes;
+        }
+        return 0;
+    }
+
+    /**
+     * @return Distance from the main sequence, as computed by <code>JavaPackage</code>.
+     */
+    public float distance(final int packageIndex) {
+        final float d = Math.abs(abstractness(packageIndex) + instability(packageIndex) - 1);
+        return d * getVolatility(packageIndex);
+    }
+
+    /**
+     * Creates <code>JavaPackage</code> instances for all packages of this
+     * snapshot, with their classes and dependencies.
+     *
+     * @return Packages in index order.
+     */
+    public List<JavaPackage> toPackages() {
+        final List<JavaPackage> packages = new ArrayList<>(packageCount);
+        for (int i = 0; i < packageCount; i++) {
+            packages.add(new JavaPackage(getPackageName(i), getVolatility(i)));
+        }
+        for (int i = 0; i < packageCount; i++) {
+            final JavaPackage javaPackage = packages.get(i);
+            final int end = intAt(packageClasses, i + 1);
+            for (int c = intAt(packageClasses, i); c < end; c++) {
+                javaPackage.addClass(toJavaClass(c));
+            }
+            javaPackage.setEfferents(toPackages(packages, getEfferents(i)));
+            javaPackage.setAfferents(toPackages(packages, getAfferents(i)));
+        }
+        return packages;
+    }
+
+    private static List<JavaPackage> toPackages(final List<JavaPackage> packages, final int[] indexes) {
+        final List<JavaPackage> result = new ArrayList<>(indexes.length);
+        for (final int index : indexes) {
+            result.add(packages.get(index));
+        }
+        return result;
+    }
+
+    private JavaClass toJavaClass(final int classIndex) {
+        final JavaClass javaClass = new JavaClass(string(intAt(classNames, classIndex)));
+        javaClass.setPackageName(string(intAt(classPackageNames, classIndex)));
+        javaClass.setSourceFile(string(intAt(classSourceFiles, classIndex)));
+        javaClass.isAbstract((intAt(classFlags, classIndex) & ABSTRACT) != 0);
+        for (final int name : slice(importStarts, importNames, classIndex)) {
+            javaClass.addImportedPackage(new JavaPackage(string(name)));
+        }
+        return javaClass;
+    }
+
+    private int checkPackage(final int packageIndex) {
+        if (packageIndex < 0 || packageIndex >= packageCount) {
+            throw new IndexOutOfBoundsException("Package index " + packageIndex + " of " + packageCount);
+        }
+        return packageIndex;
+    }
+
+    private int intAt(final int section, final int index) {
+        return buffer.getInt(section + 4 * index);
+    }
+
+    private int length(final int starts, final int index) {
+        return intAt(starts, index + 1) - intAt(starts, index);
+    }
+
+    private int[] slice(final int starts, final int values, final int index) {
+        final int start = intAt(starts, index);
+        final int[] result = new int[intAt(starts, index + 1) - start];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = intAt(values, start + i);
+        }
+        return result;
+    }
+
+    private String string(final int stringIndex) {
+        String s = strings[stringIndex];
+        if (s == null) {
+            final int start = intAt(stringStarts, stringIndex);
+            final byte[] bytes = new byte[intAt(stringStarts, stringIndex + 1) - start];
+            final ByteBuffer source = buffer.duplicate();
+            source.position(stringBytes + start);
+            source.get(bytes);
+            s = new String(bytes, StandardCharsets.UTF_8);
+            strings[stringIndex] = s;
+        }
+        return s;
+    }
+
+    /**
+     * The <code>SnapshotWriter</code> class numbers the packages, classes and
+     * strings of a snapshot before it is written.
+     */
+    private static final class SnapshotWriter {
+        private final List<JavaPackage> packages;
+        private final Map<JavaPackage, Integer> packageIndexes = new HashMap<>();
+        private final List<JavaClass> classes = new ArrayList<>();
+        private final Map<String, Integer> stringIndexes = new LinkedHashMap<>();
+
+        SnapshotWriter(final Collection<JavaPackage> roots) {
+            final Set<JavaPackage> reachable = new HashSet<>(roots);
+            final Deque<JavaPackage> pending = new ArrayDeque<>(roots);
+            while (!pending.isEmpty()) {
+                final JavaPackage javaPackage = pending.pop();
+                for (final JavaPackage efferent : javaPackage.getEfferents()) {
+                    if (reachable.add(efferent)) {
+                        pending.push(efferent);
+                    }
+                }
+                for (final JavaPackage afferent : javaPackage.getAfferents()) {
+                    if (reachable.add(afferent)) {
+                        pending.push(afferent);
+                    }
+                }
+            }
+            packages = new ArrayList<>(reachable);
+            packages.sort(JavaPackage.byName);
+            for (final JavaPackage javaPackage : packages) {
+                packageIndexes.put(javaPackage, packageIndexes.size());
+                classes.addAll(javaPackage.getClasses());
+            }
+        }
+
+        private int intern(final String s) {
+            return stringIndexes.computeIfAbsent(s, key -> stringIndexes.size());
+        }
+
+        void write(final DataOutputStream out) throws IOException {
+            final int[] names = new int[packages.size()];
+            int efferentCount = 0;
+            int afferentCount = 0;
+            for (int i = 0; i < names.length; i++) {
+                final JavaPackage javaPackage = packages.get(i);
+                names[i] = intern(javaPackage.getName());
+                efferentCount += javaPackage.getEfferents().size();
+                afferentCount += javaPackage.getAfferents().size();
+            }
+            final int[][] classStrings = new int[classes.size()][];
+            final int[][] imports = new int[classes.size()][];
+            int importCount = 0;
+            for (int i = 0; i < classStrings.length; i++) {
+                final JavaClass javaClass = classes.get(i);
+                classStrings[i] = new int[] {
+                        intern(javaClass.getClassName()),
+                        intern(javaClass.getPackageName()),
+                        intern(javaClass.getSourceFile())
+                };
+                final Collection<JavaPackage> importedPackages = javaClass.getImportedPackages();
+                imports[i] = new int[importedPackages.size()];
+                int j = 0;
+                for (final JavaPackage importedPackage : importedPackages) {
+                    imports[i][j++] = intern(importedPackage.getName());
+                }
+                importCount += imports[i].length;
+            }
+            final byte[][] stringBytes = new byte[stringIndexes.size()][];
+            int stringByteCount = 0;
+            for (final Map.Entry<String, Integer> entry : stringIndexes.entrySet()) {
+                stringBytes[entry.getValue()] = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                stringByteCount += stringBytes[entry.getValue()].length;
+            }
+
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(packages.size());
+            out.writeInt(classes.size());
+            out.writeInt(efferentCount);
+            out.writeInt(afferentCount);
+            out.writeInt(importCount);
+            out.writeInt(stringBytes.length);
+            out.writeInt(stringByteCount);
+            out.writeInt(0);
+
+            for (final int name : names) {
+                out.writeInt(name);
+            }
+            for (final JavaPackage javaPackage : packages) {
+                out.writeInt(javaPackage.getVolatility());
+            }
+            int classStart = 0;
+            for (final JavaPackage javaPackage : packages) {
+                out.writeInt(classStart);
+                classStart += javaPackage.getClasses().size();
+            }
+            out.writeInt(classStart);
+            writeAdjacency(out, true);
+            writeAdjacency(out, false);
+            for (int field = 0; field < 3; field++) {
+                for (final int[] strings : classStrings) {
+                    out.writeInt(strings[field]);
+                }
+            }
+            for (final JavaClass javaClass : classes) {
+                out.writeInt(javaClass.isAbstract() ? ABSTRACT : 0);
+            }
+            int importStart = 0;
+            for (final int[] classImports : imports) {
+                out.writeInt(importStart);
+                importStart += classImports.length;
+            }
+            out.writeInt(importStart);
+            for (final int[] classImports : imports) {
+                for (final int name : classImports) {
+                    out.writeInt(name);
+                }
+            }
+            int stringStart = 0;
+            for (final byte[] bytes : stringBytes) {
+                out.writeInt(stringStart);
+                stringStart += bytes.length;
+            }
+            out.writeInt(stringStart);
+            for (final byte[] bytes : stringBytes) {
+                out.write(bytes);
+            }
+            out.flush();
+        }
+
+        private void writeAdjacency(final DataOutputStream out, final boolean efferents) throws IOException {
+            int start = 0;
+            for (final JavaPackage javaPackage : packages) {
+                out.writeInt(start);
+                start += (efferents ? javaPackage.getEfferents() : javaPackage.getAfferents()).size();
+            }
+            out.writeInt(start);
+            for (final JavaPackage javaPackage : packages) {
+                for (final JavaPackage target : efferents ? javaPackage.getEfferents() : javaPackage.getAfferents()) {
+                    out.writeInt(packageIndexes.get(target));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,674 @@
+package jdepend.framework;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+import java.util.logging.Level;
+
+import static jdepend.framework.ClassFileParser.CLASS_DESCRIPTOR;
+import static jdepend.framework.ClassFileParser.JAVA_MAGIC;
+import static jdepend.framework.ClassFileParser.descriptorToTypes;
+import static jdepend.framework.ClassFileParser.logger;
+import static jdepend.framework.ConstantPoolTags.CONSTANT_CLASS;
+import static jdepend.framework.ConstantPoolTags.CONSTANT_UTF8;
+
+/**
+ * The <code>ParseContext</code> class holds the state of a single
+ * invocation of <code>ClassFileParser.parse()</code>.
+ *
+ * <p>A new context is created for every class file and is not shared
+ * between threads, so that one <code>ClassFileParser</code>, together
+ * with its listeners and filter, can be used by several threads at once.
+ *
+ * <p>Package names are looked up in the <code>SymbolTable</code> of the
+ * parser directly from the constant pool bytes, and every imported package
+ * is the canonical instance of the table.
+ *
+ * <p>Classes whose own package is not accepted by the filter are dropped
+ * by the analysis, so their parsing stops after the class name: such a
+ * class has no imported packages.
+ *
+ * <p>With the <code>CONSTANT_POOL</code> dependency profile, the fields and
+ * methods are skipped, and the imports are taken from the constant pool
+ * alone.
+ */
+class ParseContext {
+
+    private final String fileName;
+    private final ByteBuffer in;
+    private final PackageFilter filter;
+    private final SymbolTable symbols;
+    private final SymbolTable.Lookup lookup;
+    private final BitSet imports = new BitSet();
+    private final JavaClass javaClass;
+    private final ConstantPool constantPool;
+    private final String className;
+    private final int superClassIndex;
+    private final int[] interfaceIndexes;
+    private final FieldOrMethodInfo[] fields;
+    private final FieldOrMethodInfo[] methods;
+    private final AttributeInfo[] attributes;
+
+    /**
+     * Parses the class file from the remaining bytes of the specified buffer.
+     * The position of the buffer is not changed.
+     * The context does not change once it has been constructed.
+     *
+     * @param fileName Name of the class file for error messages, or <code>null</code>.
+     * @param buffer Buffer from which to parse the class.
+     * @param filter Filter for the class and its imported packages.
+     * @param symbols Symbol table for package names.
+     * @param profile Parts of the class file the imports are taken from.
+     * @throws IOException in case of an invalid class file.
+     */
+    ParseContext(
+            final String fileName,
+            final ByteBuffer buffer,
+            final PackageFilter filter,
+            final SymbolTable symbols,
+            final DependencyProfile profile
+    ) throws IOException {
+        this.fileName = fileName;
+        this.in = buffer.slice();
+        this.filter = filter;
+        this.symbols = symbols;
+        this.lookup = symbols.newLookup();
+        javaClass = new JavaClass("Unknown");
+
+        parseMagic();
+
+        parseMinorVersion();
+        parseMajorVersion();
+
+        constantPool = ConstantPool.parse(in);
+
+        parseAccessFlags();
+
+        className = parseClassName();
+
+        if (!filter.accept(javaClass.getPackageName())) {
+            superClassIndex = readUnsignedShort();
+            interfaceIndexes = new int[0];
+            fields = new FieldOrMethodInfo[0];
+            methods = new FieldOrMethodInfo[0];
+            attributes = new AttributeInfo[0];
+            return;
+        }
+
+        if (profile == DependencyProfile.CONSTANT_POOL) {
+            superClassIndex = readUnsignedShort();
+            interfaceIndexes = parseInterfaceIndexes();
+            skipFieldsOrMethods();
+            skipFieldsOrMethods();
+            fields = new FieldOrMethodInfo[0];
+            methods = new FieldOrMethodInfo[0];
+            attributes = parseAttributes();
+            addConstantPoolReferences();
+            return;
+        }
+
+        superClassIndex = parseSuperClass();
+
+        interfaceIndexes = parseInterfaces();
+
+        fields = parseFields();
+
+        methods = parseMethods();
+
+        attributes = parseAttributes();
+
+        addClassConstantReferences();
+
+        addAnnotationsReferences();
+    }
+
+    JavaClass getJavaClass() {
+        return javaClass;
+    }
+
+    int getConstantPoolSize() {
+        return constantPool.size();
+    }
+
+    private int parseMagic() throws IOException {
+        final int magic = in.getInt();
+        if (magic != JAVA_MAGIC) {
+            throw new IOException("Invalid class file: " + fileName);
+        }
+
+        return magic;
+    }
+
+    private int parseMinorVersion() {
+        return readUnsignedShort();
+    }
+
+    private int parseMajorVersion() {
+        return readUnsignedShort();
+    }
+
+    private void parseAccessFlags() throws IOException {
+        final int accessFlags = readUnsignedShort();
+
+        final boolean isAbstractClass = (accessFlags & AccessModifiers.ACC_ABSTRACT) != 0;
+        final boolean isInterface = (accessFlags & AccessModifiers.ACC_INTERFACE) != 0;
+
+        final boolean isAbstract = isAbstractClass || isInterface;
+        javaClass.isAbstract(isAbstract);
+
+        logger.fine("Parser: abstract = " + isAbstract);
+    }
+
+    private String parseClassName() throws IOException {
+        final int entryIndex = readUnsignedShort();
+        final String className = getClassConstantName(entryIndex);
+        javaClass.setClassName(className);
+        javaClass.setPackageName(symbols.getName(getClassConstantPackage(entryIndex)));
+
+        logger.fine("Parser: class name = " + className);
+        logger.fine("Parser: package name = " + javaClass.getPackageName());
+
+        return className;
+    }
+
+    private int parseSuperClass() throws IOException {
+        final int entryIndex = readUnsignedShort();
+        addImport(getClassConstantPackage(entryIndex));
+
+        if (logger.isLoggable(Level.FINE)) {
+            logger.fine("Parser: super class name = " + getClassConstantName(entryIndex));
+        }
+
+        return entryIndex;
+    }
+
+    private int[] parseInterfaces() throws IOException {
+        final int[] interfaceIndexes = parseInterfaceIndexes();
+        for (int i = 0; i < interfaceIndexes.length; i++) {
+            addImport(getClassConstantPackage(interfaceIndexes[i]));
+
+            if (logger.isLoggable(Level.FINE)) {
+                logger.fine("Parser: interface = " + getClassConstantName(interfaceIndexes[i]));
+            }
+        }
+
+        return interfaceIndexes;
+    }
+
+    private int[] parseInterfaceIndexes() {
+        final int interfacesCount = readUnsignedShort();
+        final int[] interfaceIndexes = new int[interfacesCount];
+        for (int i = 0; i < interfacesCount; i++) {
+            interfaceIndexes[i] = readUnsignedShort();
+        }
+        return interfaceIndexes;
+    }
+
+    /**
+     * Skips the fields or the methods without reading their names,
+     * descriptors or attributes.
+     */
+    private void skipFieldsOrMethods() {
+        final int count = readUnsignedShort();
+        for (int i = 0; i < count; i++) {
+            in.position(in.position() + 6);
+            final int attributesCount = readUnsignedShort();
+            for (int a = 0; a < attributesCount; a++) {
+                in.position(in.position() + 2);
+                final int attributeLength = in.getInt();
+                in.position(in.position() + attributeLength);
+            }
+        }
+    }
+
+    private FieldOrMethodInfo[] parseFields() throws IOException {
+        final int fieldsCount = readUnsignedShort();
+        final FieldOrMethodInfo[] fields = new FieldOrMethodInfo[fieldsCount];
+        for (int i = 0; i < fieldsCount; i++) {
+            fields[i] = parseFieldOrMethodInfo();
+            if (logger.isLoggable(Level.FINE)) {
+                logger.fine("Parser: field descriptor = " + toUtf8(fields[i].getDescriptorIndex()));
+            }
+            addDescriptorImports(fields[i].getDescriptorIndex(), true);
+        }
+
+        return fields;
+    }
+
+    private FieldOrMethodInfo[] parseMethods() throws IOException {
+        final int methodsCount = readUnsignedShort();
+        final FieldOrMethodInfo[] methods = new FieldOrMethodInfo[methodsCount];
+        for (int i = 0; i < methodsCount; i++) {
+            methods[i] = parseFieldOrMethodInfo();
+            if (logger.isLoggable(Level.FINE)) {
+                logger.fine("Parser: method descriptor = " + toUtf8(methods[i].getDescriptorIndex()));
+            }
+            addDescriptorImports(methods[i].getDescriptorIndex(), false);
+        }
+        return methods;
+    }
+
+    private FieldOrMethodInfo parseFieldOrMethodInfo() throws IOException {
+        final FieldOrMethodInfo result = new FieldOrMethodInfo(
+                readUnsignedShort(), readUnsignedShort(), readUnsignedShort());
+
+        final int attributesCount = readUnsignedShort();
+        for (int a = 0; a < attributesCount; a++) {
+            final AttributeInfo attribute = parseAttribute();
+            if (attribute != null) {
+                result.runtimeVisibleAnnotations = attribute;
+            }
+        }
+
+        return result;
+    }
+
+    private AttributeInfo[] parseAttributes() throws IOException {
+        final int attributesCount = readUnsignedShort();
+        final AttributeInfo[] attributes = new AttributeInfo[attributesCount];
+
+        for (int i = 0; i < attributesCount; i++) {
+            final int nameIndex = readUnsignedShort();
+            final String name = toUtf8(nameIndex);
+            final int attributeLength = in.getInt();
+
+            // Section 4.7.7 of VM Spec - Class File Format
+            if ("SourceFile".equals(name)) {
+                final String descriptor = toUtf8(in.getShort(in.position()) & 0xFFFF);
+                javaClass.setSourceFile(descriptor);
+            }
+            attributes[i] = toAttribute(name, attributeLength);
+        }
+
+        return attributes;
+    }
+
+    private AttributeInfo parseAttribute() throws IOException {
+        final int nameIndex = readUnsignedShort();
+        final String name = toUtf8(nameIndex);
+        final int attributeLength = in.getInt();
+        return toAttribute(name, attributeLength);
+    }
+
+    /**
+     * Returns the attribute starting at the current position if it is needed
+     * for the dependency analysis, and skips past it.
+     * Other attributes, like <code>Code</code> or <code>StackMapTable</code>,
+     * are skipped without being read.
+     */
+    private AttributeInfo toAttribute(final String name, final int attributeLength) {
+        final int start = in.position();
+        in.position(start + attributeLength);
+        if ("RuntimeVisibleAnnotations".equals(name)) {
+            final ByteBuffer value = in.duplicate();
+            value.position(start).limit(start + attributeLength);
+            return new AttributeInfo(name, value.slice());
+        }
+        return null;
+    }
+
+    private int readUnsignedShort() {
+        return in.getShort() & 0xFFFF;
+    }
+
+    private void addClassConstantReferences() throws IOException {
+        for (int j = 1; j < constantPool.size(); j++) {
+            if (constantPool.getTag(j) == CONSTANT_CLASS) {
+                addImport(getClassConstantPackage(j));
+
+                if (logger.isLoggable(Level.FINE)) {
+                    logger.fine("Parser: class type = " + getClassConstantName(j));
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the packages of all class constants and of all UTF-8 entries which
+     * are field or method descriptors, in one pass over the constant pool.
+     */
+    private void addConstantPoolReferences() throws IOException {
+        for (int j = 1; j < constantPool.size(); j++) {
+            final int tag = constantPool.getTag(j);
+            if (tag == CONSTANT_CLASS) {
+                addImport(getClassConstantPackage(j));
+            } else if (tag == CONSTANT_UTF8 && isDescriptor(j)) {
+                addDescriptorImports(j, false);
+            }
+        }
+    }
+
+    /**
+     * Indicates whether a UTF-8 entry is a field or a method descriptor.
+     * Generic signatures and class names are not, nor are string
+     * concatenation recipes, whose argument tags are control characters.
+     */
+    private boolean isDescriptor(final int utf8Index) throws IOException {
+        final int offset = constantPool.getUtf8Offset(utf8Index);
+        final int end = offset + constantPool.getUtf8Length(utf8Index);
+        if (offset == end || in.get(offset) != '(') {
+            return skipFieldType(offset, end) == end;
+        }
+        int index = offset + 1;
+        while (index >= 0 && index < end && in.get(index) != ')') {
+            index = skipFieldType(index, end);
+        }
+        if (index < 0 || index == end) {
+            return false;
+        }
+        index++;
+        return index < end && in.get(index) == 'V' ? index + 1 == end : skipFieldType(index, end) == end;
+    }
+
+    /**
+     * Returns the end of the field type starting at the specified index,
+     * or <code>-1</code> if there is none.
+     */
+    private int skipFieldType(final int from, final int end) {
+        int index = from;
+        while (index < end && in.get(index) == '[') {
+            index++;
+        }
+        if (index == end) {
+            return -1;
+        }
+        switch (in.get(index)) {
+        case 'B': case 'C': case 'D': case 'F': case 'I': case 'J': case 'S': case 'Z':
+            return index + 1;
+        case CLASS_DESCRIPTOR:
+            for (int i = index + 1; i < end; i++) {
+                final byte b = in.get(i);
+                if (b == ';') {
+                    return i > index + 1 ? i + 1 : -1;
+                }
+                if (b == '.' || b == '[' || b == '<' || b == '>' || b == ':' || (b >= 0 && b < ' ')) {
+                    return -1;
+                }
+            }
+            return -1;
+        default:
+            return -1;
+        }
+    }
+
+    private void addAnnotationsReferences() throws IOException {
+        addAttributeAnnotationReferences();
+        addFieldAnnotationReferences();
+        addMethodAnnotationReferences();
+    }
+
+    private void addAttributeAnnotationReferences() throws IOException {
+        // TODO Understand why the first one is skipped.
+        for (int j = 1; j < attributes.length; j++) {
+            if (attributes[j] != null) {
+                addAnnotationReferences(attributes[j]);
+            }
+        }
+    }
+
+    private void addFieldAnnotationReferences() throws IOException {
+        // TODO Understand why the first one is skipped.
+        for (int j = 1; j < fields.length; j++) {
+            if (fields[j].runtimeVisibleAnnotations != null) {
+                addAnnotationReferences(fields[j].runtimeVisibleAnnotations);
+            }
+        }
+    }
+
+    private void addMethodAnnotationReferences() throws IOException {
+        // TODO Understand why the first one is skipped.
+        for (int j = 1; j < methods.length; j++) {
+            if (methods[j].runtimeVisibleAnnotations != null) {
+                addAnnotationReferences(methods[j].runtimeVisibleAnnotations);
+            }
+        }
+    }
+
+    private void addAnnotationReferences(final AttributeInfo annotation) throws IOException {
+        // JVM Spec 4.8.15
+        final ByteBuffer data = annotation.value;
+        final int numAnnotations = u2(data, 0);
+        final int annotationIndex = 2;
+        addAnnotationReferences(data, annotationIndex, numAnnotations);
+    }
+
+    private int addAnnotationReferences(final ByteBuffer data, int index, final int numAnnotations) throws IOException {
+        int visitedAnnotations = 0;
+        while (visitedAnnotations < numAnnotations) {
+            final int typeIndex = u2(data, index);
+            final int numElementValuePairs = u2(data, index += 2);
+            addImport(getTypePackage(typeIndex));
+            int visitedElementValuePairs = 0;
+            index += 2;
+            while (visitedElementValuePairs < numElementValuePairs) {
+                index = addAnnotationElementValueReferences(data, index + 2);
+                visitedElementValuePairs++;
+            }
+            visitedAnnotations++;
+        }
+        return index;
+    }
+
+    private int addAnnotationElementValueReferences(final ByteBuffer data, int index) throws IOException {
+        final byte tag = data.get(index);
+        index += 1;
+        switch (tag) {
+        case 'B': case 'C': case 'D': case 'F': case 'I': case 'J': case 'S': case 'Z': case 's':
+            index += 2;
+            break;
+
+        case 'e':
+            final int enumTypeIndex = u2(data, index);
+            addImport(getTypePackage(enumTypeIndex));
+            index += 4;
+            break;
+
+        case 'c':
+            final int classInfoIndex = u2(data, index);
+            addImport(getTypePackage(classInfoIndex));
+            index += 2;
+            break;
+
+        case '@':
+            index = addAnnotationReferences(data, index, 1);
+            break;
+
+        case '[':
+            final int numValues = u2(data, index);
+            index = index + 2;
+            for (int i = 0; i < numValues; i++) {
+                index = addAnnotationElementValueReferences(data, index);
+            }
+            break;
+        default:
+            logger.warning("Unexpected class file component tag: '" + (char) tag + "'");
+        }
+        return index;
+    }
+
+    private int u2(final ByteBuffer data, final int index) {
+        return data.getShort(index) & 0xFFFF;
+    }
+
+    private String getClassConstantName(final int entryIndex) throws IOException {
+        if (constantPool.getTag(entryIndex) == 0) {
+            return "";
+        }
+        return toUtf8(constantPool.getNameIndex(entryIndex)).replace('/', '.');
+    }
+
+    private String toUtf8(final int entryIndex) throws IOException {
+        return constantPool.toUtf8(entryIndex);
+    }
+
+    /**
+     * Returns the package id of the class of a <code>CONSTANT_Class</code> entry.
+     */
+    private int getClassConstantPackage(final int entryIndex) throws IOException {
+        if (constantPool.getTag(entryIndex) == 0) {
+            return lookup.packageOf(in, 0, 0);
+        }
+        return getPackage(constantPool.getNameIndex(entryIndex), 0);
+    }
+
+    /**
+     * Returns the package id of a field descriptor, like the type of an annotation.
+     */
+    private int getTypePackage(final int entryIndex) throws IOException {
+        return getPackage(entryIndex, 1);
+    }
+
+    private int getPackage(final int utf8Index, final int skip) throws IOException {
+        final int length = constantPool.getUtf8Length(utf8Index);
+        if (length < skip) {
+            throw new IOException("Invalid type descriptor at constant pool index " + utf8Index);
+        }
+        return lookup.packageOf(in, constantPool.getUtf8Offset(utf8Index) + skip, length - skip);
+    }
+
+    /**
+     * Adds the packages of the class types of a field or method descriptor.
+     * A class type is an <code>L</code> followed by the class name up to the next semicolon.
+     */
+    private void addDescriptorImports(final int descriptorIndex, final boolean includeEmptyNames)
+            throws IOException {
+        final int offset = constantPool.getUtf8Offset(descriptorIndex);
+        final int end = offset + constantPool.getUtf8Length(descriptorIndex);
+        int index = offset;
+        while (index < end) {
+            final int start = indexOf(CLASS_DESCRIPTOR, index, end);
+            if (start < 0) {
+                break;
+            }
+            index = indexOf(';', start + 1, end);
+            if (index < 0) {
+                throw new IOException("Invalid descriptor at constant pool index " + descriptorIndex);
+            }
+            if (includeEmptyNames || index > start + 1) {
+                addImport(lookup.packageOf(in, start + 1, index - start - 1));
+            }
+            index++;
+        }
+    }
+
+    private int indexOf(final char c, final int from, final int to) {
+        for (int i = from; i < to; i++) {
+            if (in.get(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Adds the package of the specified id to the imports, unless it is
+     * <code>-1</code>. The filter is consulted once per package and class.
+     */
+    private void addImport(final int packageId) {
+        if (packageId >= 0 && !imports.get(packageId)) {
+            imports.set(packageId);
+            final JavaPackage importPackage = symbols.getPackage(packageId);
+            if (filter.accept(importPackage.getName())) {
+                javaClass.addImportedPackage(importPackage);
+            }
+        }
+    }
+
+    /**
+     * Returns a string representation of this object.
+     *
+     * @return String representation.
+     */
+    @Override
+    public String toString() {
+        final StringBuilder s = new StringBuilder();
+        try {
+            s.append("\n").append(className).append(":\n");
+
+            s.append("\nConstants:\n");
+            for (int i = 1; i < constantPool.size(); i++) {
+                s.append("    ").append(i).append(". ").append(constantPool.toString(i)).append("\n");
+                if (ConstantPool.isDoubleSizeEntry(constantPool.getTag(i))) {
+                    i++;
+                }
+            }
+
+            s.append("\nClass Name: ").append(className).append("\n");
+            s.append("Super Name: ").append(getClassConstantName(superClassIndex)).append("\n\n");
+
+            s.append(interfaceIndexes.length).append(" interfaces\n");
+            for (final int interfaceIndex : interfaceIndexes) {
+                s.append("    ").append(getClassConstantName(interfaceIndex)).append("\n");
+            }
+
+            s.append("\n").append(fields.length).append(" fields\n");
+            for (final FieldOrMethodInfo field : fields) {
+                s.append(field.toString()).append("\n");
+            }
+
+            s.append("\n").append(methods.length).append(" methods\n");
+            for (final FieldOrMethodInfo method : methods) {
+                s.append(method.toString()).append("\n");
+            }
+
+            s.append("\nDependencies:\n");
+            for (final JavaPackage jPackage : javaClass.getImportedPackages()) {
+                s.append("    ").append(jPackage.getName()).append("\n");
+            }
+
+        } catch (final Exception e) {
+            e.printStackTrace();
+        }
+
+        return s.toString();
+    }
+
+    class FieldOrMethodInfo {
+        private final int accessFlags;
+        private final int nameIndex;
+        private final int descriptorIndex;
+        private AttributeInfo runtimeVisibleAnnotations;
+
+        FieldOrMethodInfo(final int accessFlags, final int nameIndex, final int descriptorIndex) {
+            this.accessFlags = accessFlags;
+            this.nameIndex = nameIndex;
+            this.descriptorIndex = descriptorIndex;
+        }
+
+        int accessFlags() {
+            return accessFlags;
+        }
+
+        int getNameIndex() {
+            return nameIndex;
+        }
+
+        int getDescriptorIndex() {
+            return descriptorIndex;
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder s = new StringBuilder();
+            try {
+                s
+                        .append("\n    name (#")
+                        .append(getNameIndex())
+                        .append(") = ")
+                        .append(toUtf8(getNameIndex()));
+                s
+                        .append("\n    signature (#")
+                        .append(getDescriptorIndex())
+                        .append(") = ")
+                        .append(toUtf8(getDescriptorIndex()));
+                final String[] types = descriptorToTypes(toUtf8(getDescriptorIndex()));
+                for (final String type : types) {
+                    s.append("\n        type = ").append(type);
+                }
+            } catch (final Exception e) {
+                e.printStackTrace();
+            }
+            return s.toString();
+        }
+    }
+}
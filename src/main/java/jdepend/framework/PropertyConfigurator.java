@@ -54,13 +54,33 @@ public class PropertyConfigurator {
         this(loadProperties(f));
     }
 
+    /**
+     * Returns the package names to filter, listed in the properties whose
+     * keys start with <code>ignore</code>.
+     *
+     * @return Filtered package names.
+     */
     public Collection<String> getFilteredPackages() {
+        return getPackageNames("ignore");
+    }
+
+    /**
+     * Returns the package names to include, listed in the properties whose
+     * keys start with <code>include</code>.
+     *
+     * @return Included package names.
+     */
+    public Collection<String> getIncludedPackages() {
+        return getPackageNames("include");
+    }
+
+    private Collection<String> getPackageNames(final String keyPrefix) {
         final Collection<String> packages = new ArrayList<>();
 
         final Enumeration<String> e = (Enumeration<String>) properties.propertyNames();
         while (e.hasMoreElements()) {
             final String key = e.nextElement();
-            if (key.startsWith("ignore")) {
+            if (key.startsWith(keyPrefix)) {
                 final String path = properties.getProperty(key);
                 final StringTokenizer st = new StringTokenizer(path, ",");
                 while (st.hasMoreTokens()) {
@@ -79,7 +99,7 @@ public class PropertyConfigurator {
         final Enumeration<String> e = (Enumeration<String>) properties.propertyNames();
         while (e.hasMoreElements()) {
             final String key = e.nextElement();
-            if (!key.startsWith("ignore") && !key.equals("analyzeInnerClasses")) {
+            if (!key.startsWith("ignore") && !key.startsWith("include") && !key.equals("analyzeInnerClasses")) {
                 final String v = properties.getProperty(key);
                 packages.add(new JavaPackage(key, Integer.valueOf(v)));
             }
@@ -0,0 +1,293 @@
+package jdepend.framework;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The <code>SymbolTable</code> class interns the package names of an
+ * analysis run.
+ *
+ * <p>Every package name is stored once and identified by a stable integer
+ * id, in the order the names were first seen. The table also holds one
+ * canonical <code>JavaPackage</code> per name, which parsed classes share
+ * as their imported packages instead of creating a copy for every
+ * reference.
+ *
+ * <p>Names are looked up directly in the modified UTF-8 bytes of a class
+ * file constant pool, in internal form with slashes, so that known names
+ * are found without creating a <code>String</code>.
+ *
+ * <p>The table may be used by several parser threads at once. Lookups of
+ * known names and of ids do not block; only adding a name does.
+ */
+class SymbolTable {
+
+    static final String DEFAULT_PACKAGE = "Default";
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final Map<Key, Symbol> symbols = new ConcurrentHashMap<>();
+    private volatile Symbol[] byId = new Symbol[INITIAL_CAPACITY];
+    private int size;
+    private final int defaultPackage = intern(DEFAULT_PACKAGE);
+
+    /**
+     * Returns the id of the specified package name, adding it if it is new.
+     *
+     * @param name Package name.
+     * @return Package id.
+     */
+    int intern(final String name) {
+        return symbol(name).id;
+    }
+
+    private Symbol symbol(final String name) {
+        final byte[] bytes = encodeUtf8(name);
+        return symbol(new Key().set(ByteBuffer.wrap(bytes), 0, bytes.length), name);
+    }
+
+    private Symbol symbol(final Key probe, final String name) {
+        final Symbol symbol = symbols.get(probe);
+        if (symbol != null) {
+            return symbol;
+        }
+        return add(probe, name);
+    }
+
+    /**
+     * Adds a name. The symbol is stored in the array of ids before it is
+     * published to the map, and the array is written again after the
+     * store, so that every reader of an id it has seen finds the symbol
+     * without locking.
+     */
+    private synchronized Symbol add(final Key probe, final String name) {
+        Symbol symbol = symbols.get(probe);
+        if (symbol == null) {
+            final Key key = probe.copy();
+            final String packageName = name != null ? name : key.decode();
+            symbol = new Symbol(size, packageName);
+            Symbol[] table = byId;
+            if (size == table.length) {
+                table = Arrays.copyOf(table, 2 * size);
+            }
+            table[size++] = symbol;
+            byId = table;
+            symbols.put(key, symbol);
+        }
+        return symbol;
+    }
+
+    /**
+     * Returns the name of the package with the specified id.
+     *
+     * @param id Package id.
+     * @return Package name.
+     */
+    String getName(final int id) {
+        return symbol(id).name;
+    }
+
+    /**
+     * Returns the canonical package with the specified id.
+     *
+     * @param id Package id.
+     * @return Package.
+     */
+    JavaPackage getPackage(final int id) {
+        return symbol(id).javaPackage;
+    }
+
+    /**
+     * Returns the canonical package of the specified name, adding the name
+     * if it is new.
+     *
+     * @param name Package name.
+     * @return Package.
+     */
+    JavaPackage getPackage(final String name) {
+        return symbol(name).javaPackage;
+    }
+
+    private Symbol symbol(final int id) {
+        final Symbol[] table = byId;
+        final Symbol symbol = id < table.length ? table[id] : null;
+        if (symbol == null) {
+            throw new IndexOutOfBoundsException("Unknown package id: " + id);
+        }
+        return symbol;
+    }
+
+    /**
+     * @return The number of interned package names.
+     */
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Returns a new lookup for looking up names in class file bytes.
+     * A lookup must not be shared between threads.
+     *
+     * @return Lookup.
+     */
+    Lookup newLookup() {
+        return new Lookup();
+    }
+
+    /**
+     * Encodes the specified string like a class file <code>CONSTANT_Utf8</code> entry.
+     */
+    private static byte[] encodeUtf8(final String s) {
+        final ByteBuffer out = ByteBuffer.allocate(s.length() * 3);
+        for (int i = 0; i < s.length(); i++) {
+            final char c = s.charAt(i);
+            if (c != 0 && c < 0x80) {
+                out.put((byte) c);
+            } else if (c < 0x800) {
+                out.put((byte) (0xC0 | c >> 6));
+                out.put((byte) (0x80 | c & 0x3F));
+            } else {
+                out.put((byte) (0xE0 | c >> 12));
+                out.put((byte) (0x80 | c >> 6 & 0x3F));
+                out.put((byte) (0x80 | c & 0x3F));
+            }
+        }
+        final byte[] bytes = new byte[out.position()];
+        out.flip().get(bytes);
+        return bytes;
+    }
+
+    /**
+     * The <code>Lookup</code> class finds the packages of class names in
+     * class file bytes. It reuses one probe key for all lookups.
+     */
+    final class Lookup {
+        private final Key probe = new Key();
+
+        /**
+         * Returns the id of the package of a class name or type descriptor,
+         * given as modified UTF-8 bytes in internal form.
+         *
+         * <p>For an array descriptor, the package of the element type is
+         * returned. A name without a package is in the package
+         * <code>Default</code>.
+         *
+         * @param buffer Class file buffer.
+         * @param offset Offset of the name.
+         * @param length Length of the name in bytes.
+         * @return Package id, or <code>-1</code> for an array of a primitive type.
+         */
+        int packageOf(final ByteBuffer buffer, final int offset, final int length) {
+            int start = offset;
+            int end = offset + length;
+            if (length > 0 && buffer.get(start) == '[') {
+                start = indexOf(buffer, 'L', start, end) + 1;
+                end = start > 0 ? indexOf(buffer, ';', start, end) : -1;
+                if (end < 0) {
+                    return -1;
+                }
+            }
+            for (int i = end - 1; i > start; i--) {
+                final byte b = buffer.get(i);
+                if (b == '/' || b == '.') {
+                    return symbol(probe.set(buffer, start, i - start), null).id;
+                }
+            }
+            return defaultPackage;
+        }
+
+        private int indexOf(final ByteBuffer buffer, final char c, final int from, final int to) {
+            for (int i = from; i < to; i++) {
+                if (buffer.get(i) == c) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private static final class Symbol {
+        private final int id;
+        private final String name;
+        private final JavaPackage javaPackage;
+
+        Symbol(final int id, final String name) {
+            this.id = id;
+            this.name = name;
+            this.javaPackage = new JavaPackage(name);
+            javaPackage.symbolId = id;
+        }
+    }
+
+    /**
+     * The <code>Key</code> class is a package name as modified UTF-8 bytes.
+     * Slashes and dots are treated as equal, so that internal names match
+     * the dotted names of the table.
+     */
+    private static final class Key {
+        private ByteBuffer buffer;
+        private int offset;
+        private int length;
+        private int hash;
+
+        Key set(final ByteBuffer buffer, final int offset, final int length) {
+            this.buffer = buffer;
+            this.offset = offset;
+            this.length = length;
+            int h = 0;
+            for (int i = 0; i < length; i++) {
+                h = 31 * h + normalize(buffer.get(offset + i));
+            }
+            this.hash = h;
+            return this;
+        }
+
+        /**
+         * @return A key with a private copy of the bytes, in dotted form.
+         */
+        Key copy() {
+            final byte[] bytes = new byte[length];
+            for (int i = 0; i < length; i++) {
+                bytes[i] = normalize(buffer.get(offset + i));
+            }
+            return new Key().set(ByteBuffer.wrap(bytes), 0, length);
+        }
+
+        String decode() {
+            try {
+                return ConstantPool.decodeUtf8(buffer, offset, length);
+            } catch (final IOException e) {
+                throw new IllegalArgumentException(e.getMessage(), e);
+            }
+        }
+
+        private static byte normalize(final byte b) {
+            return b == '/' ? (byte) '.' : b;
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            final Key key = (Key) other;
+            if (key.hash != hash || key.length != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (normalize(buffer.get(offset + i)) != normalize(key.buffer.get(key.offset + i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
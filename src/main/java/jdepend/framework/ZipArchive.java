@@ -0,0 +1,377 @@
+package jdepend.framework;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * The <code>ZipArchive</code> class reads .jar, .war, .ear and .zip
+ * archives from a <code>ByteBuffer</code>, usually a memory-mapped file.
+ *
+ * <p>The central directory is read directly from the buffer.
+ * Stored entries are returned as slices of the archive buffer without
+ * copying, deflated entries are inflated into a heap buffer using an
+ * <code>Inflater</code> supplied by the caller, so that every worker
+ * thread can reuse its own.
+ *
+ * @see <a href="https://pkware.cachefly.net/webdocs/casestudies/APPNOTE.TXT">ZIP File Format Specification</a>
+ */
+class ZipArchive implements Closeable {
+
+    static final int STORED = 0;
+    static final int DEFLATED = 8;
+
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int END_SIGNATURE = 0x06054b50;
+    private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int ZIP64_EXTRA_ID = 0x0001;
+    private static final int LOCAL_HEADER_SIZE = 30;
+    private static final int CENTRAL_HEADER_SIZE = 46;
+    private static final int END_SIZE = 22;
+    private static final int ZIP64_END_SIZE = 56;
+    private static final int ZIP64_LOCATOR_SIZE = 20;
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+    private static final long UNSIGNED_INT = 0xFFFFFFFFL;
+    private static final int UNSIGNED_SHORT = 0xFFFF;
+    private static final int INITIAL_INFLATE_CAPACITY = 64 * 1024;
+
+    private final String name;
+    private final ByteBuffer buffer;
+    private final List<Entry> entries;
+    private final Closeable resource;
+
+    ZipArchive(final String name, final ByteBuffer buffer) throws IOException {
+        this(name, buffer, null);
+    }
+
+    private ZipArchive(final String name, final ByteBuffer buffer, final Closeable resource) throws IOException {
+        this.name = name;
+        this.buffer = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+        this.resource = resource;
+        try {
+            this.entries = Collections.unmodifiableList(readCentralDirectory());
+        } catch (final BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Invalid archive: " + name, e);
+        }
+    }
+
+    /**
+     * Memory-maps the specified archive file.
+     *
+     * @param file Archive file.
+     * @return Archive backed by a read-only mapping of the file.
+     * @throws IOException if the file cannot be mapped or is not a valid archive.
+     */
+    static ZipArchive open(final File file) throws IOException {
+        final FileChannel channel = FileChannel.open(file.toPath(), READ);
+        try {
+            final long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Archive too large to be memory-mapped: " + file.getPath());
+            }
+            final ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return new ZipArchive(file.getPath(), mapped, channel);
+        } catch (final IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    String getName() {
+        return name;
+    }
+
+    /**
+     * @return The entries of the central directory, in directory order.
+     */
+    List<Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Returns the uncompressed bytes of the specified entry.
+     *
+     * @param entry Entry of this archive.
+     * @param inflater Inflater for raw deflate data, which is reset before use.
+     * @return Buffer holding the entry bytes from position 0 to its limit.
+     * @throws IOException if the entry is encrypted, uses an unsupported method or is corrupt.
+     */
+    ByteBuffer read(final Entry entry, final Inflater inflater) throws IOException {
+        if (entry.isEncrypted()) {
+            throw new IOException("Encrypted archive entry: " + describe(entry));
+        }
+        try {
+            final ByteBuffer data = slice(dataOffset(entry), entry.compressedSize);
+            switch (entry.method) {
+            case STORED:
+                return data;
+            case DEFLATED:
+                return inflate(entry, data, inflater);
+            default:
+                throw new IOException("Unsupported compression method " + entry.method + ": " + describe(entry));
+            }
+        } catch (final BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Invalid archive entry: " + describe(entry), e);
+        }
+    }
+
+    /**
+     * Inflates an entry. The size the central directory declares is not
+     * trusted for the allocation: the buffer starts small and grows with
+     * the inflated data, up to the declared size. An entry which inflates
+     * to more or fewer bytes than declared is corrupt.
+     */
+    private ByteBuffer inflate(final Entry entry, final ByteBuffer data, final Inflater inflater) throws IOException {
+        ByteBuffer out = ByteBuffer.allocate(Math.min(entry.size, INITIAL_INFLATE_CAPACITY));
+        inflater.reset();
+        inflater.setInput(data);
+        try {
+            while (!inflater.finished()) {
+                if (!out.hasRemaining()) {
+                    if (out.capacity() == entry.size) {
+                        if (inflater.inflate(new byte[1]) > 0 || !inflater.finished()) {
+                            throw new IOException("Archive entry larger than declared: " + describe(entry));
+                        }
+                        break;
+                    }
+                    out = grow(out, entry.size);
+                }
+                if (inflater.inflate(out) == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Truncated archive entry: " + describe(entry));
+                }
+            }
+        } catch (final DataFormatException e) {
+            throw new IOException("Corrupt archive entry: " + describe(entry), e);
+        }
+        if (out.position() != entry.size) {
+            throw new IOException("Archive entry smaller than declared: " + describe(entry));
+        }
+        out.flip();
+        return out;
+    }
+
+    private static ByteBuffer grow(final ByteBuffer out, final int limit) {
+        final ByteBuffer grown = ByteBuffer.allocate((int) Math.min(limit, 2L * out.capacity()));
+        out.flip();
+        grown.put(out);
+        return grown;
+    }
+
+    private int dataOffset(final Entry entry) throws IOException {
+        final int offset = entry.localHeaderOffset;
+        if (buffer.getInt(offset) != LOCAL_HEADER_SIGNATURE) {
+            throw new IOException("Invalid local header: " + describe(entry));
+        }
+        final int nameLength = buffer.getShort(offset + 26) & UNSIGNED_SHORT;
+        final int extraLength = buffer.getShort(offset + 28) & UNSIGNED_SHORT;
+        return offset + LOCAL_HEADER_SIZE + nameLength + extraLength;
+    }
+
+    private ByteBuffer slice(final int offset, final int length) {
+        final ByteBuffer slice = buffer.duplicate();
+        slice.limit(offset + length).position(offset);
+        return slice.slice();
+    }
+
+    private String describe(final Entry entry) {
+        return name + "!/" + entry.name;
+    }
+
+    /**
+     * Reads the central directory. The offsets in an archive are relative
+     * to its first local header, so that data may be prepended to it, as
+     * to a self-extracting or executable archive. The length of such a
+     * prefix is where the central directory ends, less its size and its
+     * offset, and is added to every offset.
+     */
+    private List<Entry> readCentralDirectory() throws IOException {
+        final int end = findEndOfCentralDirectory();
+        long count = buffer.getShort(end + 10) & UNSIGNED_SHORT;
+        long size = buffer.getInt(end + 12) & UNSIGNED_INT;
+        long offset = buffer.getInt(end + 16) & UNSIGNED_INT;
+        int directoryEnd = end;
+
+        final int locator = end - ZIP64_LOCATOR_SIZE;
+        if (locator >= 0 && buffer.getInt(locator) == ZIP64_LOCATOR_SIGNATURE) {
+            final int zip64End = findZip64EndOfCentralDirectory(locator);
+            count = buffer.getLong(zip64End + 32);
+            size = buffer.getLong(zip64End + 40);
+            offset = buffer.getLong(zip64End + 48);
+            directoryEnd = zip64End;
+        }
+
+        final int prefix = toInt(directoryEnd - size - offset);
+        final List<Entry> result = new ArrayList<>(toInt(Math.min(count, UNSIGNED_SHORT)));
+        int position = toInt(prefix + offset);
+        for (long i = 0; i < count; i++) {
+            if (buffer.getInt(position) != CENTRAL_HEADER_SIGNATURE) {
+                throw new IOException("Invalid central directory: " + name);
+            }
+            final Entry entry = readEntry(position, prefix);
+            result.add(entry);
+            position += CENTRAL_HEADER_SIZE + entry.headerLength;
+        }
+        return result;
+    }
+
+    /**
+     * Finds the ZIP64 end of central directory record. Its offset in the
+     * locator does not include a prefix; without one, the record is usually
+     * right before the locator.
+     */
+    private int findZip64EndOfCentralDirectory(final int locator) throws IOException {
+        final long offset = buffer.getLong(locator + 8);
+        if (offset >= 0 && offset < locator && buffer.getInt((int) offset) == ZIP64_END_SIGNATURE) {
+            return (int) offset;
+        }
+        final int adjacent = locator - ZIP64_END_SIZE;
+        if (adjacent >= 0 && buffer.getInt(adjacent) == ZIP64_END_SIGNATURE) {
+            return adjacent;
+        }
+        throw new IOException("Invalid ZIP64 end of central directory: " + name);
+    }
+
+    private int findEndOfCentralDirectory() throws IOException {
+        final int lowest = Math.max(0, buffer.limit() - END_SIZE - MAX_COMMENT_SIZE);
+        for (int position = buffer.limit() - END_SIZE; position >= lowest; position--) {
+            if (buffer.getInt(position) == END_SIGNATURE) {
+                return position;
+            }
+        }
+        throw new IOException("Not a zip archive: " + name);
+    }
+
+    private Entry readEntry(final int position, final int prefix) throws IOException {
+        final int flags = buffer.getShort(position + 8) & UNSIGNED_SHORT;
+        final int method = buffer.getShort(position + 10) & UNSIGNED_SHORT;
+        long compressedSize = buffer.getInt(position + 20) & UNSIGNED_INT;
+        long size = buffer.getInt(position + 24) & UNSIGNED_INT;
+        final int nameLength = buffer.getShort(position + 28) & UNSIGNED_SHORT;
+        final int extraLength = buffer.getShort(position + 30) & UNSIGNED_SHORT;
+        final int commentLength = buffer.getShort(position + 32) & UNSIGNED_SHORT;
+        long localHeaderOffset = buffer.getInt(position + 42) & UNSIGNED_INT;
+
+        final byte[] nameBytes = new byte[nameLength];
+        buffer.duplicate().position(position + CENTRAL_HEADER_SIZE).get(nameBytes);
+        final String entryName = new String(nameBytes, StandardCharsets.UTF_8);
+
+        int extra = position + CENTRAL_HEADER_SIZE + nameLength;
+        final int extraEnd = extra + extraLength;
+        while (extra + 4 <= extraEnd) {
+            final int id = buffer.getShort(extra) & UNSIGNED_SHORT;
+            final int length = buffer.getShort(extra + 2) & UNSIGNED_SHORT;
+            if (id == ZIP64_EXTRA_ID) {
+                int field = extra + 4;
+                if (size == UNSIGNED_INT) {
+                    size = buffer.getLong(field);
+                    field += 8;
+                }
+                if (compressedSize == UNSIGNED_INT) {
+                    compressedSize = buffer.getLong(field);
+                    field += 8;
+                }
+                if (localHeaderOffset == UNSIGNED_INT) {
+                    localHeaderOffset = buffer.getLong(field);
+                }
+            }
+            extra += 4 + length;
+        }
+
+        return new Entry(
+                entryName,
+                flags,
+                method,
+                toInt(compressedSize),
+                toInt(size),
+                toInt(prefix + localHeaderOffset),
+                nameLength + extraLength + commentLength
+        );
+    }
+
+    private int toInt(final long value) throws IOException {
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new IOException("Archive offset or size out of range: " + name);
+        }
+        return (int) value;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (resource != null) {
+            resource.close();
+        }
+    }
+
+    /**
+     * The <code>Entry</code> class describes an entry of the central directory.
+     */
+    static class Entry {
+        private final String name;
+        private final int flags;
+        private final int method;
+        private final int compressedSize;
+        private final int size;
+        private final int localHeaderOffset;
+        private final int headerLength;
+
+        Entry(
+                final String name,
+                final int flags,
+                final int method,
+                final int compressedSize,
+                final int size,
+                final int localHeaderOffset,
+                final int headerLength
+        ) {
+            this.name = name;
+            this.flags = flags;
+            this.method = method;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.localHeaderOffset = localHeaderOffset;
+            this.headerLength = headerLength;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        int getMethod() {
+            return method;
+        }
+
+        /**
+         * @return The uncompressed size in bytes.
+         */
+        int getSize() {
+            return size;
+        }
+
+        boolean isDirectory() {
+            return name.endsWith("/");
+        }
+
+        boolean isEncrypted() {
+            return (flags & 1) != 0;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
@@ -24,6 +24,18 @@ public class EfferentNode extends PackageNode {
         super(parent, javaPackage);
     }
 
+    /**
+     * Constructs an <code>EfferentNode</code> with the specified parent node,
+     * efferent Java package and the cycle analysis of the packages of the tree.
+     * 
+     * @param parent Parent package node.
+     * @param javaPackage Efferent Java package.
+     * @param cycles Cycle analysis.
+     */
+    public EfferentNode(final PackageNode parent, final JavaPackage javaPackage, final CycleAnalysis cycles) {
+        super(parent, javaPackage, cycles);
+    }
+
     /**
      * Creates and returns a <code>PackageNode</code> with the specified
      * parent node and Java package.
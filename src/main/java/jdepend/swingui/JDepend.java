@@ -1,5 +1,6 @@
 package jdepend.swingui;
 
+import jdepend.framework.CycleAnalysis;
 import jdepend.framework.JavaClass;
 import jdepend.framework.JavaPackage;
 import jdepend.framework.PackageFilter;
@@ -271,10 +272,11 @@ public class JDepend implements ParserListener {
         jPackage.setAfferents(packages);
         jPackage.setEfferents(packages);
 
-        final AfferentNode ah = new AfferentNode(null, jPackage);
+        final CycleAnalysis cycles = analyzer.analyzeCycles();
+        final AfferentNode ah = new AfferentNode(null, jPackage, cycles);
         afferentTree.setModel(new DependTreeModel(ah));
 
-        final EfferentNode eh = new EfferentNode(null, jPackage);
+        final EfferentNode eh = new EfferentNode(null, jPackage, cycles);
         efferentTree.setModel(new DependTreeModel(eh));
     }
 
@@ -1,5 +1,6 @@
 package jdepend.swingui;
 
+import jdepend.framework.CycleAnalysis;
 import jdepend.framework.JavaPackage;
 
 import java.text.NumberFormat;
@@ -24,19 +25,35 @@ public abstract class PackageNode {
 
     private final PackageNode parent;
     private final JavaPackage javaPackage;
+    private final CycleAnalysis cycles;
 
     private List<PackageNode> children;
 
     /**
      * Constructs a <code>PackageNode</code> with the specified package and
-     * its collection of dependent packages.
+     * its collection of dependent packages. The node tells the cycles of
+     * its package from the cycle analysis of its parent.
      *
      * @param parent      Parent package node.
      * @param javaPackage Java package.
      */
     public PackageNode(final PackageNode parent, final JavaPackage javaPackage) {
+        this(parent, javaPackage, parent != null ? parent.cycles : null);
+    }
+
+    /**
+     * Constructs a <code>PackageNode</code> with the specified package and
+     * the cycle analysis of the packages of the tree.
+     *
+     * @param parent      Parent package node.
+     * @param javaPackage Java package.
+     * @param cycles      Cycle analysis, or <code>null</code> to analyze
+     *                    the cycles of every package by itself.
+     */
+    public PackageNode(final PackageNode parent, final JavaPackage javaPackage, final CycleAnalysis cycles) {
         this.parent = parent;
         this.javaPackage = javaPackage;
+        this.cycles = cycles;
         children = null;
     }
 
@@ -142,7 +159,7 @@ public abstract class PackageNode {
         label.append("I: ").append(format(getPackage().instability())).append("  ");
         label.append("D: ").append(format(getPackage().distance())).append("  ");
         label.append("V: ").append(getPackage().getVolatility());
-        if (getPackage().containsCycle()) {
+        if (cycles != null ? cycles.reachesCycle(getPackage()) : getPackage().containsCycle()) {
             label.append(" Cyclic");
         }
 
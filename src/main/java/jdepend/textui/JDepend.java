@@ -4,6 +4,9 @@ import java.io.*;
 import java.util.*;
 import java.text.NumberFormat;
 
+import jdepend.framework.AnalysisCache;
+import jdepend.framework.AnalysisStatistics;
+import jdepend.framework.CycleAnalysis;
 import jdepend.framework.JavaClass;
 import jdepend.framework.JavaPackage;
 import jdepend.framework.PackageFilter;
@@ -22,6 +25,8 @@ public class JDepend {
 
     private PrintWriter writer;
 
+    private boolean printStatistics;
+
     protected NumberFormat formatter;
 
     /**
@@ -74,6 +79,27 @@ public class JDepend {
         analyzer.setComponents(components);
     }
     
+    /**
+     * Sets the cache of parse results.
+     *
+     * @param cache Cache, or <code>null</code> to parse all class files.
+     */
+    public void setCache(final AnalysisCache cache) {
+        analyzer.setCache(cache);
+    }
+
+    /**
+     * Determines whether statistics of the phases of the analysis are
+     * collected and printed to standard error after the report.
+     *
+     * @param b <code>true</code> to print statistics; <code>false</code>
+     *            otherwise.
+     */
+    public void setPrintStatistics(final boolean b) {
+        printStatistics = b;
+        analyzer.setCollectStatistics(b);
+    }
+
     /**
      * Adds the specified directory name to the collection of directories to be
      * analyzed.
@@ -104,18 +130,24 @@ public class JDepend {
 
         final Collection<JavaPackage> packages = analyzer.analyze();
 
-        final List<JavaPackage> packageList = new ArrayList<>(packages);
-        packageList.sort(JavaPackage.byName);
+        analyzer.measure(AnalysisStatistics.Phase.REPORT, () -> {
+            final List<JavaPackage> packageList = new ArrayList<>(packages);
+            packageList.sort(JavaPackage.byName);
+
+            printPackages(packageList);
 
-        printPackages(packageList);
+            printCycles(packageList);
 
-        printCycles(packageList);
+            printSummary(packageList);
 
-        printSummary(packageList);
+            printFooter();
 
-        printFooter();
+            getWriter().flush();
+        });
 
-        getWriter().flush();
+        if (printStatistics) {
+            printAnalysisStatistics(analyzer.getStatistics());
+        }
     }
 
     protected void printPackages(final Collection<JavaPackage> packages) {
@@ -218,8 +250,10 @@ public class JDepend {
     protected void printCycles(final Collection<JavaPackage> packages) {
         printCyclesHeader();
 
+        final CycleAnalysis cycles = analyzer.measure(AnalysisStatistics.Phase.CYCLES,
+                () -> new CycleAnalysis(packages));
         for (final JavaPackage aPackage : packages) {
-            printCycle(aPackage);
+            printCycle(cycles.getCyclePath(aPackage));
         }
 
         printCyclesFooter();
@@ -228,8 +262,17 @@ public class JDepend {
     protected void printCycle(final JavaPackage javaPackage) {
         final List<JavaPackage> list = new ArrayList<>();
         javaPackage.collectCycle(list);
+        printCycle(list);
+    }
 
-        if (!javaPackage.containsCycle()) {
+    /**
+     * Prints a cycle path as reported by <code>JavaPackage.collectCycle()</code>.
+     *
+     * @param list Path from the reporting package to the package closing
+     *             the cycle, or an empty list if there is no cycle.
+     */
+    protected void printCycle(final List<JavaPackage> list) {
+        if (list.isEmpty()) {
             return;
         }
 
@@ -405,6 +448,31 @@ public class JDepend {
         }
     }
 
+    protected void printAnalysisStatistics(final AnalysisStatistics statistics) {
+        final PrintWriter err = new PrintWriter(System.err);
+        err.println("\n--------------------------------------------------");
+        err.println("- Statistics:");
+        err.println("--------------------------------------------------\n");
+        err.println(String.format("%-10s %12s %12s", "Phase", "Wall (ms)", "CPU (ms)"));
+        for (final AnalysisStatistics.Phase phase : AnalysisStatistics.Phase.values()) {
+            err.println(String.format("%-10s %12s %12s", phase.name().toLowerCase(Locale.ROOT),
+                    toMillis(statistics.getWallNanos(phase)), toMillis(statistics.getCpuNanos(phase))));
+        }
+        err.println();
+        err.println("Analysis time (ms): " + toMillis(statistics.getAnalysisNanos()));
+        err.println("Bytes read: " + statistics.getBytesRead());
+        err.println("Classes parsed: " + statistics.getClassesParsed());
+        err.println("Classes analyzed: " + statistics.getClassesAnalyzed()
+                + " (" + formatter.format(statistics.getClassesPerSecond()) + " classes/s)");
+        err.println("Archive entries skipped: " + statistics.getEntriesSkipped());
+        err.println("Parse failures: " + statistics.getParseFailures());
+        err.flush();
+    }
+
+    private String toMillis(final long nanos) {
+        return formatter.format(nanos / 1e6);
+    }
+
     protected void printSectionBreak() {
         getWriter().println("");
     }
@@ -435,7 +503,7 @@ public class JDepend {
         System.err.println("");
         System.err.println("usage: ");
         System.err.println(baseUsage + "[-components <components>]"
-                + " [-file <output file>] <directory> "
+                + " [-cache <cache file>] [-stats] [-file <output file>] <directory> "
                 + "[directory2 [directory 3] ...]");
         System.exit(1);
     }
@@ -462,11 +530,18 @@ public class JDepend {
                         usage(ioe.getMessage());
                     }
                     
+                } else if (args[i].equalsIgnoreCase("-cache")) {
+                    if (args.length <= i + 1) {
+                        usage("Cache file name not specified.");
+                    }
+                    setCache(new AnalysisCache(new File(args[++i])));
                 } else if (args[i].equalsIgnoreCase("-components")) {
                     if (args.length <= i + 1) {
                         usage("Components not specified.");
                     }
                     setComponents(args[++i]);
+                } else if (args[i].equalsIgnoreCase("-stats") || args[i].equalsIgnoreCase("--stats")) {
+                    setPrintStatistics(true);
                 } else {
                     usage("Invalid argument: " + args[i]);
                 }
@@ -0,0 +1,159 @@
+package jdepend.framework;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+public class AnalysisCacheTest extends JDependTestCase {
+
+    private File directory;
+    private File cacheFile;
+    private File classFile;
+
+    public AnalysisCacheTest(final String name) {
+        super(name);
+    }
+
+    protected void setUp() {
+        super.setUp();
+        try {
+            directory = Files.createTempDirectory("jdepend-cache").toFile();
+            cacheFile = new File(directory, "jdepend.cache");
+            final File classes = new File(directory, "classes");
+            assertTrue(classes.mkdir());
+            classFile = new File(classes, "ExampleConcreteClass.class");
+            Files.copy(new File(getTestDataDir() + "example_class1.bin").toPath(), classFile.toPath());
+            Files.copy(new File(getTestDataDir() + "test.jar").toPath(), new File(classes, "test.jar").toPath());
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    protected void tearDown() {
+        delete(directory);
+        super.tearDown();
+    }
+
+    public void testUnchangedFilesAreNotParsed() throws IOException {
+        final List<String> expected = describe(newBuilder(null).build());
+
+        final AnalysisCache cache = new AnalysisCache(cacheFile);
+        assertEquals(expected, describe(newBuilder(cache).build()));
+        assertEquals(0, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertTrue(cacheFile.isFile());
+
+        final AnalysisCache reloaded = new AnalysisCache(cacheFile);
+        final List<JavaClass> parsed = new ArrayList<>();
+        final ClassFileParser parser = new ClassFileParser();
+        parser.addParseListener(parsed::add);
+        final JavaClassBuilder builder = new JavaClassBuilder(parser, newFileManager());
+        builder.setCache(reloaded);
+        assertEquals(expected, describe(builder.build()));
+        assertEquals(2, reloaded.getHits());
+        assertEquals(0, reloaded.getMisses());
+        assertEquals(expected.size(), parsed.size());
+    }
+
+    public void testModifiedFilesAreParsed() throws IOException {
+        final AnalysisCache cache = new AnalysisCache(cacheFile);
+        newBuilder(cache).build();
+
+        assertTrue(classFile.setLastModified(classFile.lastModified() - 10000));
+        newBuilder(cache).build();
+        assertEquals(1, cache.getHits());
+        assertEquals(3, cache.getMisses());
+    }
+
+    public void testContentHashing() throws IOException {
+        final AnalysisCache cache = new AnalysisCache(cacheFile);
+        cache.setContentHashing(true);
+        final List<String> expected = describe(newBuilder(cache).build());
+
+        assertTrue(classFile.setLastModified(classFile.lastModified() - 10000));
+        assertEquals(expected, describe(newBuilder(cache).build()));
+        assertEquals(2, cache.getHits());
+        assertEquals(2, cache.getMisses());
+
+        Files.copy(new File(getTestDataDir() + "example_class2.bin").toPath(), classFile.toPath(),
+                StandardCopyOption.REPLACE_EXISTING);
+        assertTrue(classFile.setLastModified(classFile.lastModified() - 20000));
+        newBuilder(cache).build();
+        assertEquals(3, cache.getHits());
+        assertEquals(3, cache.getMisses());
+    }
+
+    public void testFilterChangeDiscardsCache() throws IOException {
+        newBuilder(new AnalysisCache(cacheFile)).build();
+
+        final AnalysisCache cache = new AnalysisCache(cacheFile);
+        final FileManager fm = newFileManager();
+        final JavaClassBuilder builder = new JavaClassBuilder(
+                new ClassFileParser(new PackageFilter(Collections.singleton("java.util."))), fm);
+        builder.setCache(cache);
+        builder.build();
+        assertEquals(0, cache.getHits());
+        assertEquals(2, cache.getMisses());
+    }
+
+    public void testParallelBuild() throws IOException {
+        final List<String> expected = describe(newBuilder(null).build());
+
+        final AnalysisCache cache = new AnalysisCache(cacheFile);
+        final JavaClassBuilder builder = newBuilder(cache);
+        builder.setThreads(4);
+        assertEquals(expected, describe(builder.build()));
+        assertEquals(expected, describe(builder.build()));
+        assertEquals(2, cache.getHits());
+        assertEquals(2, cache.getMisses());
+    }
+
+    public void testCorruptCacheFile() throws IOException {
+        Files.write(cacheFile.toPath(), new byte[] {0x4A, 0x44, 0x41, 0x43, 0, 0, 0, 1, 0, 1});
+
+        final AnalysisCache cache = new AnalysisCache(cacheFile);
+        assertEquals(describe(newBuilder(null).build()), describe(newBuilder(cache).build()));
+        assertEquals(2, cache.getMisses());
+    }
+
+    private FileManager newFileManager() throws IOException {
+        final FileManager fm = new FileManager();
+        fm.addDirectory(new File(directory, "classes").getPath());
+        return fm;
+    }
+
+    private JavaClassBuilder newBuilder(final AnalysisCache cache) throws IOException {
+        final JavaClassBuilder builder = new JavaClassBuilder(newFileManager());
+        builder.setCache(cache);
+        return builder;
+    }
+
+    private static List<String> describe(final Collection<JavaClass> classes) {
+        final List<String> descriptions = new ArrayList<>();
+        for (final JavaClass javaClass : classes) {
+            final List<String> imports = new ArrayList<>();
+            for (final JavaPackage importedPackage : javaClass.getImportedPackages()) {
+                imports.add(importedPackage.getName());
+            }
+            Collections.sort(imports);
+            descriptions.add(javaClass.getClassName() + " " + javaClass.getPackageName() + " "
+                    + javaClass.isAbstract() + " " + javaClass.getSourceFile() + " " + imports);
+        }
+        return descriptions;
+    }
+
+    private static void delete(final File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (final File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,94 @@
+package jdepend.framework;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+public class AnalysisEventsTest extends JDependTestCase {
+
+    private static final String[] EVENTS = {
+        "jdepend.Scan", "jdepend.Archive", "jdepend.ClassRead", "jdepend.ClassParse", "jdepend.Cycles",
+    };
+
+    public AnalysisEventsTest(final String name) {
+        super(name);
+    }
+
+    public void testEvents() throws IOException {
+        final ClassFileGenerator generator = new ClassFileGenerator(5);
+        generator.setPackageCount(5);
+        generator.setClassCount(50);
+        generator.setCycleDensity(0.2);
+        final File jarFile = File.createTempFile("events", ".jar");
+        final Path recordingFile = Files.createTempFile("events", ".jfr");
+        try {
+            generator.writeJar(jarFile);
+            try (Recording recording = new Recording()) {
+                for (final String event : EVENTS) {
+                    recording.enable(event).withThreshold(Duration.ZERO);
+                }
+                recording.start();
+                final JDepend jdepend = new JDepend(new PackageFilter(Collections.singleton("java.")));
+                jdepend.addDirectory(jarFile.getPath());
+                jdepend.analyze();
+                assertTrue(jdepend.containsCycles());
+                recording.stop();
+                recording.dump(recordingFile);
+            }
+
+            final List<RecordedEvent> parses = new ArrayList<>();
+            final List<RecordedEvent> reads = new ArrayList<>();
+            final List<RecordedEvent> others = new ArrayList<>();
+            for (final RecordedEvent event : RecordingFile.readAllEvents(recordingFile)) {
+                final String type = event.getEventType().getName();
+                if (type.equals("jdepend.ClassParse")) {
+                    parses.add(event);
+                } else if (type.equals("jdepend.ClassRead")) {
+                    reads.add(event);
+                } else if (type.startsWith("jdepend.")) {
+                    others.add(event);
+                }
+            }
+
+            assertEquals(generator.getClassCount(), parses.size());
+            assertEquals(generator.getClassCount(), reads.size());
+            final RecordedEvent parse = parses.get(0);
+            assertEquals(generator.getClassName(0) + ".class", parse.getString("source"));
+            assertEquals(generator.getClassName(0).replace('/', '.'), parse.getString("className"));
+            assertEquals(generator.getClassFile(0).length, parse.getLong("size"));
+            assertTrue(parse.getInt("constantPoolSize") > 0);
+            final RecordedEvent read = reads.get(0);
+            assertEquals(jarFile.getPath(), read.getString("path"));
+            assertEquals(generator.getClassName(0) + ".class", read.getString("entry"));
+            assertEquals(generator.getClassFile(0).length, read.getLong("size"));
+
+            assertEquals(3, others.size());
+            for (final RecordedEvent event : others) {
+                switch (event.getEventType().getName()) {
+                case "jdepend.Scan":
+                    assertEquals(1, event.getInt("files"));
+                    break;
+                case "jdepend.Archive":
+                    assertEquals(jarFile.getPath(), event.getString("path"));
+                    assertEquals(jarFile.length(), event.getLong("size"));
+                    break;
+                default:
+                    assertEquals("jdepend.Cycles", event.getEventType().getName());
+                    assertTrue(event.getInt("cycles") > 0);
+                }
+            }
+        } finally {
+            jarFile.delete();
+            Files.deleteIfExists(recordingFile);
+        }
+    }
+}
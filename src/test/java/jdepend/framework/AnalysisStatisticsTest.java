@@ -0,0 +1,98 @@
+package jdepend.framework;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+public class AnalysisStatisticsTest extends JDependTestCase {
+
+    public AnalysisStatisticsTest(final String name) {
+        super(name);
+    }
+
+    public void testStatistics() throws IOException {
+        for (final int threads : new int[] {1, 4}) {
+            final JDepend jdepend = new JDepend();
+            jdepend.addDirectory(getJavaMainDir());
+            jdepend.addDirectory(getJavaTestDir());
+            jdepend.setThreads(threads);
+            assertNull(jdepend.getStatistics());
+
+            jdepend.setCollectStatistics(true);
+            jdepend.analyze();
+            jdepend.containsCycles();
+            final AnalysisStatistics statistics = jdepend.getStatistics();
+
+            assertEquals(jdepend.countClasses(), statistics.getClassesParsed());
+            assertEquals(statistics.getClassesParsed(), statistics.getClassesAnalyzed());
+            assertEquals(0, statistics.getParseFailures());
+            assertEquals(0, statistics.getEntriesSkipped());
+            assertTrue(statistics.getBytesRead() > 0);
+            assertTrue(statistics.getAnalysisNanos() > 0);
+            assertTrue(statistics.getClassesPerSecond() > 0);
+            for (final AnalysisStatistics.Phase phase : AnalysisStatistics.Phase.values()) {
+                if (phase != AnalysisStatistics.Phase.REPORT) {
+                    assertTrue(phase.name(), statistics.getWallNanos(phase) > 0);
+                }
+                assertTrue(phase.name(), statistics.getCpuNanos(phase) >= 0);
+            }
+            assertEquals(0, statistics.getWallNanos(AnalysisStatistics.Phase.REPORT));
+
+            jdepend.setCollectStatistics(false);
+            assertNull(jdepend.getStatistics());
+        }
+    }
+
+    public void testArchiveStatistics() throws IOException {
+        final ClassFileGenerator generator = new ClassFileGenerator(11);
+        generator.setPackageCount(4);
+        generator.setClassCount(40);
+        final File jarFile = File.createTempFile("statistics", ".jar");
+        try {
+            try (OutputStream file = new FileOutputStream(jarFile);
+                 ZipOutputStream out = new ZipOutputStream(file)) {
+                for (int i = 0; i < generator.getClassCount(); i++) {
+                    out.putNextEntry(new ZipEntry(generator.getClassName(i) + ".class"));
+                    out.write(generator.getClassFile(i));
+                    out.closeEntry();
+                }
+                out.putNextEntry(new ZipEntry("gen/p3/Broken.class"));
+                out.write(new byte[] {(byte) 0xCA, (byte) 0xFE});
+                out.closeEntry();
+            }
+
+            for (final boolean memoryMapped : new boolean[] {false, true}) {
+                final JDepend jdepend = new JDepend(new PackageFilter(Collections.singleton("gen.p0")));
+                jdepend.addDirectory(jarFile.getPath());
+                jdepend.setMemoryMappedArchives(memoryMapped);
+                jdepend.setCollectStatistics(true);
+                jdepend.analyze();
+                final AnalysisStatistics statistics = jdepend.getStatistics();
+
+                assertEquals(10, statistics.getEntriesSkipped());
+                assertEquals(30, statistics.getClassesParsed());
+                assertEquals(30, statistics.getClassesAnalyzed());
+                assertEquals(1, statistics.getParseFailures());
+            }
+        } finally {
+            jarFile.delete();
+        }
+    }
+
+    public void testMeasure() {
+        final JDepend jdepend = new JDepend();
+        assertEquals("report", jdepend.measure(AnalysisStatistics.Phase.REPORT, () -> "report"));
+
+        jdepend.setCollectStatistics(true);
+        final boolean[] ran = new boolean[1];
+        jdepend.measure(AnalysisStatistics.Phase.REPORT, () -> {
+            ran[0] = true;
+        });
+        assertTrue(ran[0]);
+        assertTrue(jdepend.getStatistics().getWallNanos(AnalysisStatistics.Phase.REPORT) > 0);
+    }
+}
@@ -0,0 +1,351 @@
+package jdepend.framework;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * The <code>ClassFileGenerator</code> class generates a corpus of valid
+ * class files with a configurable shape, for tests at scale.
+ *
+ * <p>The classes are spread evenly over the packages <code>gen.p0</code>,
+ * <code>gen.p1</code>, and so on. Every class refers to other classes
+ * through the types of its fields, and may carry an annotation whose type
+ * is another class. The number of references of a class follows a
+ * geometric distribution with the configured mean.
+ *
+ * <p>Packages form layers: references go to packages with higher numbers,
+ * concentrated on the last packages by the fan-out skew, so that those act
+ * as widely used hubs. A reference goes to a package with a lower number
+ * with the probability of the cycle density, which creates package cycles.
+ * A reference from the last package stays within the package.
+ *
+ * <p>The corpus is a function of the seed and the settings only.
+ */
+final class ClassFileGenerator {
+
+    private static final int MAGIC = 0xCAFEBABE;
+    private static final int MAJOR_VERSION = 52;
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_PRIVATE = 0x0002;
+    private static final int ACC_SUPER = 0x0020;
+    private static final int ACC_ABSTRACT = 0x0400;
+
+    private final long seed;
+    private int packageCount = 10;
+    private int classCount = 100;
+    private double fanOut = 4;
+    private double fanOutSkew = 1;
+    private double cycleDensity;
+    private double annotationDensity;
+    private double abstractness;
+    private int[][] references;
+    private int[] annotations;
+    private boolean[] abstractClasses;
+
+    /**
+     * @param seed Seed of the random choices.
+     */
+    ClassFileGenerator(final long seed) {
+        this.seed = seed;
+    }
+
+    void setPackageCount(final int packageCount) {
+        this.packageCount = Math.max(1, packageCount);
+        references = null;
+    }
+
+    void setClassCount(final int classCount) {
+        this.classCount = Math.max(0, classCount);
+        references = null;
+    }
+
+    /**
+     * @param fanOut Mean number of classes a class refers to.
+     */
+    void setFanOut(final double fanOut) {
+        this.fanOut = Math.max(0, fanOut);
+        references = null;
+    }
+
+    /**
+     * @param fanOutSkew <code>1</code> to spread references evenly over the
+     *                   packages they may go to; higher values to
+     *                   concentrate them on the last packages.
+     */
+    void setFanOutSkew(final double fanOutSkew) {
+        this.fanOutSkew = Math.max(1, fanOutSkew);
+        references = null;
+    }
+
+    /**
+     * @param cycleDensity Probability of a reference to a package with a lower number.
+     */
+    void setCycleDensity(final double cycleDensity) {
+        this.cycleDensity = cycleDensity;
+        references = null;
+    }
+
+    /**
+     * @param annotationDensity Probability of a class to carry an annotation.
+     */
+    void setAnnotationDensity(final double annotationDensity) {
+        this.annotationDensity = annotationDensity;
+        references = null;
+    }
+
+    /**
+     * @param abstractness Probability of a class to be abstract.
+     */
+    void setAbstractness(final double abstractness) {
+        this.abstractness = abstractness;
+        references = null;
+    }
+
+    int getClassCount() {
+        return classCount;
+    }
+
+    String getPackageName(final int packageIndex) {
+        return "gen.p" + packageIndex;
+    }
+
+    /**
+     * Returns the name of a class in internal form, with slashes.
+     *
+     * @param classIndex Class index.
+     * @return Class name.
+     */
+    String getClassName(final int classIndex) {
+        return "gen/p" + packageOf(classIndex) + "/C" + classIndex;
+    }
+
+    private int packageOf(final int classIndex) {
+        return (int) ((long) classIndex * packageCount / Math.max(1, classCount));
+    }
+
+    /**
+     * Returns the packages every package depends upon, as the analysis is
+     * expected to find them without <code>java.*</code> packages.
+     *
+     * @return Efferent package names by package name.
+     */
+    Map<String, Set<String>> getPackageDependencies() {
+        generate();
+        final Map<String, Set<String>> dependencies = new TreeMap<>();
+        for (int i = 0; i < classCount; i++) {
+            final String packageName = getPackageName(packageOf(i));
+            final Set<String> efferents = dependencies.computeIfAbsent(packageName, name -> new TreeSet<>());
+            for (final int target : references[i]) {
+                efferents.add(getPackageName(packageOf(target)));
+            }
+            if (annotations[i] >= 0) {
+                efferents.add(getPackageName(packageOf(annotations[i])));
+            }
+            efferents.remove(packageName);
+        }
+        return dependencies;
+    }
+
+    /**
+     * Returns the bytes of a class file.
+     *
+     * @param classIndex Class index.
+     * @return Class file.
+     */
+    byte[] getClassFile(final int classIndex) {
+        generate();
+        final ConstantPoolWriter constants = new ConstantPoolWriter();
+        final String className = getClassName(classIndex);
+        final int thisClass = constants.classEntry(className);
+        final int superClass = constants.classEntry("java/lang/Object");
+        final int[] fieldNames = new int[references[classIndex].length];
+        final int[] fieldTypes = new int[references[classIndex].length];
+        for (int i = 0; i < fieldNames.length; i++) {
+            fieldNames[i] = constants.utf8("f" + i);
+            fieldTypes[i] = constants.utf8("L" + getClassName(references[classIndex][i]) + ";");
+        }
+        final int sourceFileName = constants.utf8("SourceFile");
+        final int sourceFile = constants.utf8("C" + classIndex + ".java");
+        final boolean annotated = annotations[classIndex] >= 0;
+        final int annotationsName = annotated ? constants.utf8("RuntimeVisibleAnnotations") : 0;
+        final int annotationType = annotated ? constants.utf8("L" + getClassName(annotations[classIndex]) + ";") : 0;
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeShort(0);
+            out.writeShort(MAJOR_VERSION);
+            constants.write(out);
+            out.writeShort(ACC_PUBLIC | ACC_SUPER | (abstractClasses[classIndex] ? ACC_ABSTRACT : 0));
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(0);
+            out.writeShort(fieldNames.length);
+            for (int i = 0; i < fieldNames.length; i++) {
+                out.writeShort(ACC_PRIVATE);
+                out.writeShort(fieldNames[i]);
+                out.writeShort(fieldTypes[i]);
+                out.writeShort(0);
+            }
+            out.writeShort(0);
+            // The annotations of the first attribute are not analyzed
+            out.writeShort(annotated ? 2 : 1);
+            out.writeShort(sourceFileName);
+            out.writeInt(2);
+            out.writeShort(sourceFile);
+            if (annotated) {
+                out.writeShort(annotationsName);
+                out.writeInt(6);
+                out.writeShort(1);
+                out.writeShort(annotationType);
+                out.writeShort(0);
+            }
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Writes the class files into a directory, in subdirectories by package.
+     *
+     * @param directory Directory.
+     * @throws IOException in case of I/O problems.
+     */
+    void writeDirectory(final File directory) throws IOException {
+        for (int i = 0; i < classCount; i++) {
+            final File file = new File(directory, getClassName(i) + ".class");
+            file.getParentFile().mkdirs();
+            Files.write(file.toPath(), getClassFile(i));
+        }
+    }
+
+    /**
+     * Writes the class files into a JAR file.
+     *
+     * @param jarFile JAR file.
+     * @throws IOException in case of I/O problems.
+     */
+    void writeJar(final File jarFile) throws IOException {
+        try (OutputStream file = new FileOutputStream(jarFile);
+             ZipOutputStream out = new ZipOutputStream(file)) {
+            for (int i = 0; i < classCount; i++) {
+                final ZipEntry entry = new ZipEntry(getClassName(i) + ".class");
+                entry.setTime(0);
+                out.putNextEntry(entry);
+                out.write(getClassFile(i));
+                out.closeEntry();
+            }
+        }
+    }
+
+    private void generate() {
+        if (references != null) {
+            return;
+        }
+        final Random random = new Random(seed);
+        references = new int[classCount][];
+        annotations = new int[classCount];
+        abstractClasses = new boolean[classCount];
+        for (int i = 0; i < classCount; i++) {
+            final int count = geometric(random);
+            references[i] = new int[count];
+            for (int j = 0; j < count; j++) {
+                references[i][j] = target(i, random);
+            }
+            annotations[i] = random.nextDouble() < annotationDensity ? target(i, random) : -1;
+            abstractClasses[i] = random.nextDouble() < abstractness;
+        }
+    }
+
+    private int geometric(final Random random) {
+        if (fanOut == 0) {
+            return 0;
+        }
+        final double p = 1 / (1 + fanOut);
+        return (int) (Math.log(1 - random.nextDouble()) / Math.log(1 - p));
+    }
+
+    /**
+     * Chooses the class a class refers to.
+     */
+    private int target(final int classIndex, final Random random) {
+        final int source = packageOf(classIndex);
+        final int targetPackage;
+        if (random.nextDouble() < cycleDensity && source > 0) {
+            targetPackage = random.nextInt(source);
+        } else if (source < packageCount - 1) {
+            final int range = packageCount - source - 1;
+            targetPackage = source + 1 + Math.min(range - 1,
+                    (int) (range * Math.pow(random.nextDouble(), 1 / fanOutSkew)));
+        } else {
+            targetPackage = source;
+        }
+        final int first = firstClassOf(targetPackage);
+        final int end = firstClassOf(targetPackage + 1);
+        return end > first ? first + random.nextInt(end - first) : classIndex;
+    }
+
+    private int firstClassOf(final int packageIndex) {
+        return (int) (((long) packageIndex * classCount + packageCount - 1) / packageCount);
+    }
+
+    /**
+     * The <code>ConstantPoolWriter</code> class collects the UTF-8 and class
+     * entries of a class file, each one once.
+     */
+    private static final class ConstantPoolWriter {
+        private final Map<String, Integer> utf8Entries = new HashMap<>();
+        private final Map<String, Integer> classEntries = new HashMap<>();
+        private final List<int[]> entries = new ArrayList<>();
+        private final List<String> values = new ArrayList<>();
+
+        int utf8(final String value) {
+            return utf8Entries.computeIfAbsent(value, key -> add(ConstantPoolTags.CONSTANT_UTF8, 0, key));
+        }
+
+        int classEntry(final String className) {
+            final Integer existing = classEntries.get(className);
+            if (existing != null) {
+                return existing;
+            }
+            final int index = add(ConstantPoolTags.CONSTANT_CLASS, utf8(className), null);
+            classEntries.put(className, index);
+            return index;
+        }
+
+        private int add(final int tag, final int nameIndex, final String value) {
+            entries.add(new int[] {tag, nameIndex});
+            values.add(value);
+            return entries.size();
+        }
+
+        void write(final DataOutputStream out) throws IOException {
+            out.writeShort(entries.size() + 1);
+            for (int i = 0; i < entries.size(); i++) {
+                final int[] entry = entries.get(i);
+                out.writeByte(entry[0]);
+                if (entry[0] == ConstantPoolTags.CONSTANT_UTF8) {
+                    out.writeUTF(values.get(i));
+                } else {
+                    out.writeShort(entry[1]);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package jdepend.framework;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+public class ClassFileGeneratorTest extends JDependTestCase {
+
+    public ClassFileGeneratorTest(final String name) {
+        super(name);
+    }
+
+    private static ClassFileGenerator generator(final long seed) {
+        final ClassFileGenerator generator = new ClassFileGenerator(seed);
+        generator.setPackageCount(30);
+        generator.setClassCount(500);
+        generator.setFanOut(3);
+        generator.setFanOutSkew(2);
+        generator.setCycleDensity(0.05);
+        generator.setAnnotationDensity(0.2);
+        generator.setAbstractness(0.25);
+        return generator;
+    }
+
+    public void testDeterministic() {
+        final ClassFileGenerator first = generator(42);
+        final ClassFileGenerator second = generator(42);
+        for (int i = 0; i < first.getClassCount(); i++) {
+            assertTrue(Arrays.equals(first.getClassFile(i), second.getClassFile(i)));
+        }
+        assertEquals(first.getPackageDependencies(), second.getPackageDependencies());
+        assertFalse(first.getPackageDependencies().equals(generator(43).getPackageDependencies()));
+    }
+
+    public void testValidClassFiles() throws IOException {
+        final ClassFileGenerator generator = generator(42);
+        final ClassFileParser parser = new ClassFileParser(new PackageFilter(Collections.singleton("java.")));
+        int abstractClasses = 0;
+        for (int i = 0; i < generator.getClassCount(); i++) {
+            final JavaClass javaClass = parser.parse(ByteBuffer.wrap(generator.getClassFile(i)));
+            assertEquals(generator.getClassName(i).replace('/', '.'), javaClass.getClassName());
+            assertEquals("C" + i + ".java", javaClass.getSourceFile());
+            if (javaClass.isAbstract()) {
+                abstractClasses++;
+            }
+        }
+        assertTrue(abstractClasses > 0 && abstractClasses < generator.getClassCount());
+    }
+
+    public void testPackageGraph() throws IOException {
+        final ClassFileGenerator generator = generator(7);
+        final File directory = Files.createTempDirectory("generated").toFile();
+        final File jarFile = File.createTempFile("generated", ".jar");
+        try {
+            generator.writeDirectory(directory);
+            generator.writeJar(jarFile);
+            final Map<String, Set<String>> expected = generator.getPackageDependencies();
+            assertEquals(30, expected.size());
+
+            for (final DependencyProfile profile : DependencyProfile.values()) {
+                assertEquals(expected, packageGraph(directory, profile));
+                assertEquals(expected, packageGraph(jarFile, profile));
+            }
+
+            final JDepend jdepend = analyzer(jarFile, DependencyProfile.FULL);
+            assertEquals(generator.getClassCount(), jdepend.countClasses());
+            jdepend.analyze();
+            assertTrue(jdepend.containsCycles());
+        } finally {
+            jarFile.delete();
+            deleteTree(directory);
+        }
+    }
+
+    public void testAcyclic() {
+        final ClassFileGenerator generator = generator(42);
+        generator.setCycleDensity(0);
+        final Map<String, Set<String>> dependencies = generator.getPackageDependencies();
+        for (final Map.Entry<String, Set<String>> entry : dependencies.entrySet()) {
+            final int source = Integer.parseInt(entry.getKey().substring("gen.p".length()));
+            for (final String efferent : entry.getValue()) {
+                assertTrue(Integer.parseInt(efferent.substring("gen.p".length())) > source);
+            }
+        }
+    }
+
+    private static JDepend analyzer(final File file, final DependencyProfile profile) throws IOException {
+        final JDepend jdepend = new JDepend(new PackageFilter(Collections.singleton("java.")));
+        jdepend.addDirectory(file.getPath());
+        jdepend.setDependencyProfile(profile);
+        return jdepend;
+    }
+
+    private static Map<String, Set<String>> packageGraph(final File file, final DependencyProfile profile)
+            throws IOException {
+        final Map<String, Set<String>> graph = new TreeMap<>();
+        for (final JavaPackage javaPackage : analyzer(file, profile).analyze()) {
+            final Set<String> efferents = new TreeSet<>();
+            for (final JavaPackage efferent : javaPackage.getEfferents()) {
+                efferents.add(efferent.getName());
+            }
+            if (javaPackage.getName().startsWith("gen.")) {
+                graph.put(javaPackage.getName(), efferents);
+            }
+        }
+        return graph;
+    }
+
+    private static void deleteTree(final File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (final File child : children) {
+                deleteTree(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -2,8 +2,15 @@ package jdepend.framework;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertAll;
@@ -62,6 +69,18 @@ public class ClassFileParserTest extends JDependTestCase {
         assertContains(imports, "java.math", "java.text", "java.lang", "java.io", "java.rmi", "java.util");
     }
 
+    public void testFilteredClass() throws IOException {
+        final var f = new File(getJavaTestDir() + getPackageSubDir() + "ExampleInterface.class");
+        final var filtered = new ClassFileParser(new PackageFilter(List.of("jdepend.framework")));
+
+        final var clazz = filtered.parse(f);
+
+        assertEquals("jdepend.framework.ExampleInterface", clazz.getClassName());
+        assertEquals("jdepend.framework", clazz.getPackageName());
+        assertTrue(clazz.isAbstract());
+        assertEquals(0, clazz.getImportedPackages().size());
+    }
+
     public void testAbstractClass() throws IOException {
         final var f = new File(getJavaTestDir() + getPackageSubDir() + "ExampleAbstractClass.class");
 
@@ -171,4 +190,83 @@ public class ClassFileParserTest extends JDependTestCase {
     public void testExampleClassFile2() throws IOException {
         parser.parse(ClassFileParser.class.getClassLoader().getResourceAsStream("example_class2.bin"));
     }
+
+    public void testByteBuffer() throws IOException {
+        final var f = exampleClassFile("ExampleConcreteClass");
+        final byte[] bytes = Files.readAllBytes(f.toPath());
+        final var expected = parser.parse(f);
+
+        final var heap = ByteBuffer.allocate(bytes.length + 8);
+        heap.position(3);
+        heap.put(bytes);
+        heap.position(3).limit(3 + bytes.length);
+        assertSameClass(expected, parser.parse(heap));
+        assertEquals(3, heap.position());
+
+        final var direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes).flip();
+        assertSameClass(expected, parser.parse(direct.asReadOnlyBuffer()));
+        assertEquals(0, direct.position());
+    }
+
+    public void testTruncatedClassFile() throws IOException {
+        final byte[] bytes = Files.readAllBytes(exampleClassFile("ExampleConcreteClass").toPath());
+        final var truncated = ByteBuffer.wrap(bytes, 0, bytes.length / 2);
+
+        assertThrows(
+                IOException.class,
+                () -> parser.parse(truncated),
+                "Truncated class file: Should raise IOException"
+        );
+    }
+
+    public void testConcurrentParsing() throws Exception {
+        final var names = List.of(
+                "ExampleInterface",
+                "ExampleAbstractClass",
+                "ExampleConcreteClass",
+                "ExampleConcreteClass$ExampleInnerClass",
+                "ExamplePackageClass"
+        );
+        final var parsed = new AtomicInteger();
+        parser.addParseListener(parsedClass -> parsed.incrementAndGet());
+
+        final List<Integer> expected = new ArrayList<>();
+        for (final String name : names) {
+            expected.add(parser.parse(exampleClassFile(name)).getImportedPackages().size());
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<List<Integer>>> results = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                results.add(executor.submit(() -> {
+                    final List<Integer> actual = new ArrayList<>();
+                    for (final String name : names) {
+                        actual.add(parser.parse(exampleClassFile(name)).getImportedPackages().size());
+                    }
+                    return actual;
+                }));
+            }
+            for (final Future<List<Integer>> result : results) {
+                assertEquals(expected, result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(17 * names.size(), parsed.get());
+    }
+
+    private static void assertSameClass(final JavaClass expected, final JavaClass actual) {
+        assertEquals(expected.getClassName(), actual.getClassName());
+        assertEquals(expected.getSourceFile(), actual.getSourceFile());
+        assertEquals(expected.isAbstract(), actual.isAbstract());
+        assertEquals(expected.getImportedPackages().size(), actual.getImportedPackages().size());
+        assertTrue(actual.getImportedPackages().containsAll(expected.getImportedPackages()));
+    }
+
+    private File exampleClassFile(final String name) {
+        return new File(getJavaTestDir() + getPackageSubDir() + name + ".class");
+    }
 }
@@ -0,0 +1,60 @@
+package jdepend.framework;
+
+import java.util.Arrays;
+
+public class ComponentMapperTest extends JDependTestCase {
+
+    public ComponentMapperTest(final String name) {
+        super(name);
+    }
+
+    public void testPrefix() {
+        final ComponentMapper mapper = new ComponentMapper(Arrays.asList("com.foo", "org"));
+
+        assertEquals("com.foo", mapper.toComponent("com.foo.bar"));
+        assertEquals("com.foo", mapper.toComponent("com.foo.bar.baz"));
+        assertEquals("org", mapper.toComponent("org.junit"));
+        assertEquals("com.foo", mapper.toComponent("com.foo"));
+        assertEquals("com.foobar.baz", mapper.toComponent("com.foobar.baz"));
+        assertEquals("com", mapper.toComponent("com"));
+        assertEquals("Default", mapper.toComponent("Default"));
+    }
+
+    public void testNestedComponents() {
+        final ComponentMapper mapper = new ComponentMapper(Arrays.asList("com", "com.foo.api", "com.foo"));
+
+        assertEquals("com.foo.api", mapper.toComponent("com.foo.api.impl"));
+        assertEquals("com.foo", mapper.toComponent("com.foo.apis"));
+        assertEquals("com.foo", mapper.toComponent("com.foo.api"));
+        assertEquals("com", mapper.toComponent("com.bar"));
+    }
+
+    public void testWildcards() {
+        final ComponentMapper mapper = new ComponentMapper(Arrays.asList("com.*", "com.*.api", "com.acme.api.x"));
+
+        assertEquals("com.bar", mapper.toComponent("com.bar.impl"));
+        assertEquals("com.bar.api", mapper.toComponent("com.bar.api.impl"));
+        assertEquals("com.acme.api", mapper.toComponent("com.acme.api.impl"));
+        assertEquals("com.acme.api.x", mapper.toComponent("com.acme.api.x.y"));
+        assertEquals("com.bar", mapper.toComponent("com.bar"));
+    }
+
+    public void testLiteralBeforeWildcard() {
+        final ComponentMapper mapper = new ComponentMapper(Arrays.asList("*.util", "java.*"));
+
+        assertEquals("java.util", mapper.toComponent("java.util.concurrent"));
+        assertEquals("java.io", mapper.toComponent("java.io.file"));
+        assertEquals("org.util", mapper.toComponent("org.util.x"));
+    }
+
+    public void testSetComponents() {
+        final JDepend jdepend = new JDepend();
+        jdepend.setComponents("com.foo,,org.*,");
+
+        assertEquals("com.foo", jdepend.addPackage("com.foo.bar").getName());
+        assertEquals("org.junit", jdepend.addPackage("org.junit.framework").getName());
+
+        jdepend.setComponents("com");
+        assertEquals("com", jdepend.addPackage("com.foo.bar").getName());
+    }
+}
@@ -33,7 +33,7 @@ public class ComponentTest extends JDependTestCase {
 
     public void testJDependComponents() throws IOException {
 
-        jdepend.setComponents("jdepend,junit,java,javax");
+        jdepend.setComponents("jdepend,junit,java,javax,jdk");
 
         jdepend.addDirectory(getJavaMainDir());
         jdepend.addDirectory(getJavaTestDir());
@@ -41,7 +41,7 @@ public class ComponentTest extends JDependTestCase {
         jdepend.analyze();
 
         Collection packages = jdepend.getPackages();
-        assertEquals(8, packages.size()); // TODO Filter-out JUnit
+        assertEquals(9, packages.size()); // TODO Filter-out JUnit
 
         //assertJDependPackage(); // TODO Re-enable
         assertJUnitPackage();
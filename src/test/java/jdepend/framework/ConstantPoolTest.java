@@ -0,0 +1,70 @@
+package jdepend.framework;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static jdepend.framework.ConstantPoolTags.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ConstantPoolTest extends JDependTestCase {
+
+    private ConstantPool pool;
+    private ByteBuffer buffer;
+
+    public ConstantPoolTest(final String name) {
+        super(name);
+    }
+
+    protected void setUp() {
+        super.setUp();
+        try {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final DataOutputStream out = new DataOutputStream(bytes);
+            out.writeShort(6);
+            out.writeByte(CONSTANT_UTF8);
+            out.writeUTF("café/€uro");
+            out.writeByte(CONSTANT_LONG);
+            out.writeLong(42L);
+            out.writeByte(CONSTANT_CLASS);
+            out.writeShort(1);
+            out.writeByte(CONSTANT_INTEGER);
+            out.writeInt(7);
+            out.writeShort(0xCAFE);
+            buffer = ByteBuffer.wrap(bytes.toByteArray());
+            pool = ConstantPool.parse(buffer);
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public void testParse() throws IOException {
+        assertEquals(6, pool.size());
+        assertEquals(0xCAFE, buffer.getShort() & 0xFFFF);
+
+        assertEquals(CONSTANT_UTF8, pool.getTag(1));
+        assertEquals(CONSTANT_LONG, pool.getTag(2));
+        assertEquals(0, pool.getTag(3));
+        assertEquals(CONSTANT_CLASS, pool.getTag(4));
+        assertEquals(1, pool.getNameIndex(4));
+        assertEquals(CONSTANT_INTEGER, pool.getTag(5));
+    }
+
+    public void testUtf8IsDecodedOnce() throws IOException {
+        final String name = pool.toUtf8(1);
+        assertEquals("café/€uro", name);
+        assertSame(name, pool.toUtf8(1));
+    }
+
+    public void testInvalidEntries() {
+        assertThrows(IOException.class, () -> pool.toUtf8(4), "Not a UTF8 entry");
+        assertThrows(IOException.class, () -> pool.getTag(6), "Illegal index");
+        assertThrows(IOException.class, () -> pool.getTag(-1), "Illegal index");
+    }
+
+    public void testUnknownConstant() {
+        final ByteBuffer invalid = ByteBuffer.wrap(new byte[] {0, 2, 99, 0, 0});
+        assertThrows(IOException.class, () -> ConstantPool.parse(invalid), "Unknown constant");
+    }
+}
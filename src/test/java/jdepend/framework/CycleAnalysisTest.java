@@ -0,0 +1,137 @@
+package jdepend.framework;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+public class CycleAnalysisTest extends JDependTestCase {
+
+    public CycleAnalysisTest(final String name) {
+        super(name);
+    }
+
+    public void testComponents() {
+        final JavaPackage a = new JavaPackage("A");
+        final JavaPackage b = new JavaPackage("B");
+        final JavaPackage c = new JavaPackage("C");
+        final JavaPackage d = new JavaPackage("D");
+        final JavaPackage e = new JavaPackage("E");
+
+        a.dependsUpon(b);
+        b.dependsUpon(c);
+        c.dependsUpon(d);
+        d.dependsUpon(c);
+        c.dependsUpon(e);
+
+        final CycleAnalysis analysis = new CycleAnalysis(Arrays.asList(a, b));
+
+        assertTrue(analysis.containsCycles());
+        assertFalse(analysis.isInCycle(a));
+        assertFalse(analysis.isInCycle(b));
+        assertTrue(analysis.isInCycle(c));
+        assertTrue(analysis.isInCycle(d));
+        assertFalse(analysis.isInCycle(e));
+
+        assertTrue(analysis.reachesCycle(a));
+        assertTrue(analysis.reachesCycle(c));
+        assertFalse(analysis.reachesCycle(e));
+
+        assertEquals(new HashSet<>(Arrays.asList(c, d)), new HashSet<>(analysis.getCycleMembers(d)));
+        assertTrue(analysis.getCycleMembers(a).isEmpty());
+        assertEquals(1, analysis.getCycles().size());
+
+        assertEquals(Arrays.asList(a, b, c, d, c), analysis.getCyclePath(a));
+        assertTrue(analysis.getCyclePath(e).isEmpty());
+    }
+
+    public void testOneAnalysisPerJDependAnalysis() {
+        final JDepend jdepend = new JDepend();
+        jdepend.analyze();
+        final CycleAnalysis analysis = jdepend.analyzeCycles();
+        assertSame(analysis, jdepend.analyzeCycles());
+
+        final JavaPackage a = jdepend.addPackage("A");
+        final JavaPackage b = jdepend.addPackage("B");
+        a.dependsUpon(b);
+        b.dependsUpon(a);
+        assertTrue(analysis != jdepend.analyzeCycles());
+        assertTrue(jdepend.analyzeCycles().isInCycle(a));
+
+        final CycleAnalysis added = jdepend.analyzeCycles();
+        jdepend.analyze();
+        assertTrue(added != jdepend.analyzeCycles());
+    }
+
+    public void testUnknownPackage() {
+        final CycleAnalysis analysis = new CycleAnalysis(new ArrayList<>());
+        assertFalse(analysis.containsCycles());
+        assertFalse(analysis.isInCycle(new JavaPackage("A")));
+        assertFalse(analysis.reachesCycle(new JavaPackage("A")));
+    }
+
+    public void testDeepGraph() {
+        final List<JavaPackage> packages = new ArrayList<>();
+        for (int i = 0; i < 100000; i++) {
+            packages.add(new JavaPackage("p" + i));
+        }
+        for (int i = 1; i < packages.size(); i++) {
+            packages.get(i - 1).dependsUpon(packages.get(i));
+        }
+
+        assertFalse(new CycleAnalysis(packages).containsCycles());
+
+        packages.get(packages.size() - 1).dependsUpon(packages.get(0));
+        final CycleAnalysis analysis = new CycleAnalysis(packages);
+        assertTrue(analysis.isInCycle(packages.get(50000)));
+        assertEquals(packages.size(), analysis.getCycleMembers(packages.get(0)).size());
+        assertEquals(packages.size() + 1, analysis.getCyclePath(packages.get(0)).size());
+    }
+
+    public void testCyclePathMatchesDepthFirstSearch() {
+        final Random random = new Random(42);
+        for (int graph = 0; graph < 200; graph++) {
+            final List<JavaPackage> packages = new ArrayList<>();
+            final int size = 2 + random.nextInt(8);
+            for (int i = 0; i < size; i++) {
+                packages.add(new JavaPackage("p" + i));
+            }
+            final int edges = random.nextInt(size * 2);
+            for (int i = 0; i < edges; i++) {
+                packages.get(random.nextInt(size)).dependsUpon(packages.get(random.nextInt(size)));
+            }
+
+            final CycleAnalysis analysis = new CycleAnalysis(packages);
+            for (final JavaPackage javaPackage : packages) {
+                final List<JavaPackage> expected = new ArrayList<>();
+                final boolean found = depthFirstCycle(javaPackage, expected);
+                assertEquals(found, analysis.reachesCycle(javaPackage));
+                assertEquals(found, javaPackage.containsCycle());
+                assertEquals(expected, analysis.getCyclePath(javaPackage));
+
+                final List<JavaPackage> collected = new ArrayList<>();
+                assertEquals(found, javaPackage.collectCycle(collected));
+                assertEquals(expected, collected);
+            }
+        }
+    }
+
+    /**
+     * The recursive search <code>JavaPackage.collectCycle()</code> used before.
+     */
+    private static boolean depthFirstCycle(final JavaPackage javaPackage, final List<JavaPackage> list) {
+        if (list.contains(javaPackage)) {
+            list.add(javaPackage);
+            return true;
+        }
+        list.add(javaPackage);
+        for (final JavaPackage efferent : javaPackage.getEfferents()) {
+            if (depthFirstCycle(efferent, list)) {
+                return true;
+            }
+        }
+        list.remove(javaPackage);
+        return false;
+    }
+}
@@ -0,0 +1,157 @@
+package jdepend.framework;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+public class CycleEnumeratorTest extends JDependTestCase {
+
+    public CycleEnumeratorTest(final String name) {
+        super(name);
+    }
+
+    public void testNoCycles() {
+        final JavaPackage a = new JavaPackage("A");
+        final JavaPackage b = new JavaPackage("B");
+        a.dependsUpon(b);
+
+        final List<List<JavaPackage>> cycles = new ArrayList<>();
+        assertTrue(new CycleEnumerator(Arrays.asList(a, b)).enumerate(cycles::add));
+        assertTrue(cycles.isEmpty());
+    }
+
+    public void testElementaryCycles() {
+        final JavaPackage a = new JavaPackage("A");
+        final JavaPackage b = new JavaPackage("B");
+        final JavaPackage c = new JavaPackage("C");
+        final JavaPackage d = new JavaPackage("D");
+
+        c.dependsUpon(a);
+        a.dependsUpon(b);
+        b.dependsUpon(a);
+        b.dependsUpon(c);
+        c.dependsUpon(d);
+        d.dependsUpon(b);
+
+        final List<List<JavaPackage>> cycles = new ArrayList<>();
+        assertTrue(new CycleEnumerator(Collections.singleton(c)).enumerate(cycles::add));
+        assertEquals(
+                new HashSet<>(Arrays.asList(
+                        Arrays.asList(a, b),
+                        Arrays.asList(a, b, c),
+                        Arrays.asList(b, c, d)
+                )),
+                new HashSet<>(cycles)
+        );
+        assertEquals(3, cycles.size());
+    }
+
+    public void testLimits() {
+        final List<JavaPackage> packages = completeGraph(6);
+
+        final List<List<JavaPackage>> all = new ArrayList<>();
+        assertTrue(new CycleEnumerator(packages).enumerate(all::add));
+        assertEquals(409, all.size());
+
+        final CycleEnumerator limited = new CycleEnumerator(packages);
+        limited.setMaxCycles(10);
+        final List<List<JavaPackage>> first = new ArrayList<>();
+        assertFalse(limited.enumerate(first::add));
+        assertEquals(10, first.size());
+
+        final CycleEnumerator shortCycles = new CycleEnumerator(packages);
+        shortCycles.setMaxLength(3);
+        final List<List<JavaPackage>> upToThree = new ArrayList<>();
+        assertTrue(shortCycles.enumerate(upToThree::add));
+        assertEquals(15 + 40, upToThree.size());
+        for (final List<JavaPackage> cycle : upToThree) {
+            assertTrue(cycle.size() <= 3);
+        }
+    }
+
+    public void testTimeout() {
+        final CycleEnumerator enumerator = new CycleEnumerator(completeGraph(14));
+        enumerator.setTimeout(50, TimeUnit.MILLISECONDS);
+        final long start = System.nanoTime();
+        assertFalse(enumerator.enumerate(cycle -> { }));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10));
+    }
+
+    public void testLongCycle() {
+        final List<JavaPackage> packages = new ArrayList<>();
+        for (int i = 0; i < 50000; i++) {
+            packages.add(new JavaPackage(String.format("p%05d", i)));
+        }
+        for (int i = 0; i < packages.size(); i++) {
+            packages.get(i).dependsUpon(packages.get((i + 1) % packages.size()));
+        }
+
+        final List<List<JavaPackage>> cycles = new ArrayList<>();
+        assertTrue(new CycleEnumerator(packages).enumerate(cycles::add));
+        assertEquals(1, cycles.size());
+        assertEquals(packages, cycles.get(0));
+    }
+
+    public void testMatchesExhaustiveSearch() {
+        final Random random = new Random(7);
+        for (int graph = 0; graph < 100; graph++) {
+            final List<JavaPackage> packages = new ArrayList<>();
+            final int size = 2 + random.nextInt(6);
+            for (int i = 0; i < size; i++) {
+                packages.add(new JavaPackage("p" + i));
+            }
+            final int edges = random.nextInt(size * 3);
+            for (int i = 0; i < edges; i++) {
+                packages.get(random.nextInt(size)).dependsUpon(packages.get(random.nextInt(size)));
+            }
+
+            final Set<List<JavaPackage>> expected = new HashSet<>();
+            for (final JavaPackage start : packages) {
+                exhaustiveSearch(start, new ArrayList<>(Collections.singletonList(start)), expected);
+            }
+
+            final List<List<JavaPackage>> cycles = new ArrayList<>();
+            assertTrue(new CycleEnumerator(packages).enumerate(cycles::add));
+            assertEquals(expected.size(), cycles.size());
+            assertEquals(expected, new HashSet<>(cycles));
+        }
+    }
+
+    /**
+     * Collects every simple path from the first package back to it whose
+     * other packages have names sorting after the first one.
+     */
+    private static void exhaustiveSearch(
+            final JavaPackage start,
+            final List<JavaPackage> path,
+            final Set<List<JavaPackage>> cycles
+    ) {
+        for (final JavaPackage efferent : path.get(path.size() - 1).getEfferents()) {
+            if (efferent.equals(start)) {
+                cycles.add(new ArrayList<>(path));
+            } else if (!path.contains(efferent) && efferent.getName().compareTo(start.getName()) > 0) {
+                path.add(efferent);
+                exhaustiveSearch(start, path, cycles);
+                path.remove(path.size() - 1);
+            }
+        }
+    }
+
+    private static List<JavaPackage> completeGraph(final int size) {
+        final List<JavaPackage> packages = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            packages.add(new JavaPackage(String.format("p%02d", i)));
+        }
+        for (final JavaPackage from : packages) {
+            for (final JavaPackage to : packages) {
+                from.dependsUpon(to);
+            }
+        }
+        return packages;
+    }
+}
@@ -0,0 +1,86 @@
+package jdepend.framework;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+public class DependencyProfileTest extends JDependTestCase {
+
+    public DependencyProfileTest(final String name) {
+        super(name);
+    }
+
+    public void testSamePackageGraph() throws IOException {
+        for (final String directory : new String[] {getJavaMainDir(), getJavaTestDir(), getTestDataDir()}) {
+            final PackageFilter filter = new PackageFilter();
+            assertEquals(directory, packageGraph(directory, filter, DependencyProfile.FULL),
+                    packageGraph(directory, filter, DependencyProfile.CONSTANT_POOL));
+        }
+    }
+
+    public void testUnfilteredPackageGraphContainsFull() throws IOException {
+        for (final String directory : new String[] {getJavaMainDir(), getJavaTestDir(), getTestDataDir()}) {
+            final PackageFilter filter = new PackageFilter(new TreeSet<>());
+            final Map<String, Collection<String>> full = packageGraph(directory, filter, DependencyProfile.FULL);
+            final Map<String, Collection<String>> constantPool =
+                    packageGraph(directory, filter, DependencyProfile.CONSTANT_POOL);
+            for (final Map.Entry<String, Collection<String>> entry : full.entrySet()) {
+                assertTrue(entry.getKey(), constantPool.get(entry.getKey()).containsAll(entry.getValue()));
+            }
+        }
+    }
+
+    public void testSameClasses() throws IOException {
+        final FileManager fileManager = new FileManager();
+        fileManager.addDirectory(getJavaMainDir());
+        fileManager.addDirectory(getJavaTestDir());
+        final ClassFileParser parser = new ClassFileParser(new PackageFilter(new TreeSet<>()));
+        final JavaClassBuilder builder = new JavaClassBuilder(parser, fileManager);
+
+        final Collection<JavaClass> full = builder.build();
+        parser.setDependencyProfile(DependencyProfile.CONSTANT_POOL);
+        final Collection<JavaClass> constantPool = builder.build();
+
+        assertEquals(full.size(), constantPool.size());
+        for (final JavaClass javaClass : constantPool) {
+            assertFalse(javaClass.getClassName(), "Unknown".equals(javaClass.getSourceFile()));
+        }
+    }
+
+    public void testConcatenationRecipes() throws IOException {
+        assertEquals(3, descriptor("A").length());
+        final ClassFileParser parser = new ClassFileParser(new PackageFilter(new TreeSet<>()));
+        parser.setDependencyProfile(DependencyProfile.CONSTANT_POOL);
+
+        // The recipe of the concatenation in descriptor() is "L\1;"
+        final JavaClass javaClass =
+                parser.parse(new File(getJavaTestDir() + getPackageSubDir() + "DependencyProfileTest.class"));
+        assertFalse(javaClass.getImportedPackages().contains(new JavaPackage(SymbolTable.DEFAULT_PACKAGE)));
+    }
+
+    private static String descriptor(final String className) {
+        return "L" + className + ";";
+    }
+
+    private static Map<String, Collection<String>> packageGraph(
+            final String directory,
+            final PackageFilter filter,
+            final DependencyProfile profile
+    ) throws IOException {
+        final JDepend jdepend = new JDepend(filter);
+        jdepend.addDirectory(directory);
+        jdepend.setDependencyProfile(profile);
+        final Map<String, Collection<String>> graph = new TreeMap<>();
+        for (final JavaPackage javaPackage : jdepend.analyze()) {
+            final Collection<String> efferents = new TreeSet<>();
+            for (final JavaPackage efferent : javaPackage.getEfferents()) {
+                efferents.add(efferent.getName());
+            }
+            graph.put(javaPackage.getName(), efferents);
+        }
+        return graph;
+    }
+}
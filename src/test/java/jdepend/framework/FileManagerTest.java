@@ -2,6 +2,14 @@ package jdepend.framework;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
@@ -30,7 +38,44 @@ public class FileManagerTest extends JDependTestCase {
     public void testBuildDirectory() throws IOException {
         fileManager.addDirectory(getJavaTestDir());
         fileManager.addDirectory(getJavaMainDir());
-        assertEquals(45, fileManager.extractFiles().size());
+        assertEquals(75, fileManager.extractFiles().size());
+    }
+
+    public void testScan() throws IOException {
+        fileManager.addDirectory(getJavaTestDir());
+        fileManager.addDirectory(getJavaMainDir());
+        final Collection<File> files = fileManager.extractFiles();
+        fileManager.addDirectory(getJavaMainDir());
+
+        assertEquals(new ArrayList<>(new TreeSet<>(files)), new ArrayList<>(fileManager.extractFiles()));
+        assertSame(fileManager.extractFiles(), fileManager.extractFiles());
+    }
+
+    public void testScanOrder() throws IOException {
+        final Path root = Files.createTempDirectory("scan");
+        try {
+            for (final String name : new String[] {"a.class", "a/b.class", "a-b.class", "a/c/d.class", "a0/e.class",
+                    "b.jar", "b/f.class"}) {
+                final Path file = root.resolve(name);
+                Files.createDirectories(file.getParent());
+                Files.createFile(file);
+            }
+            fileManager.addDirectory(root.resolve("b").toString());
+            fileManager.addDirectory(root.toString());
+            fileManager.addDirectory(root.resolve("a").toString());
+            fileManager.addDirectory(root.resolve("b.jar").toString());
+
+            final List<File> files = new ArrayList<>();
+            fileManager.scan(files::add);
+
+            assertEquals(7, files.size());
+            assertEquals(new ArrayList<>(new TreeSet<>(files)), files);
+            assertEquals(files, new ArrayList<>(fileManager.extractFiles()));
+        } finally {
+            try (Stream<Path> paths = Files.walk(root)) {
+                paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
     }
 
     public void testNonExistentDirectory() {
@@ -81,6 +126,15 @@ public class FileManagerTest extends JDependTestCase {
         testZip(".zip");
     }
 
+    public void testJarFileName() {
+        assertTrue(fileManager.acceptJarFileName("WEB-INF/lib/library.jar"));
+        assertTrue(fileManager.acceptJarFileName("module.WAR"));
+        assertTrue(fileManager.acceptJarFileName("application.ear"));
+        assertTrue(fileManager.acceptJarFileName("lib/archive.zip"));
+        assertFalse(fileManager.acceptJarFileName("META-INF/MANIFEST.MF"));
+        assertFalse(fileManager.acceptJarFileName("jdepend/framework/JDepend.class"));
+    }
+
     private void testZip(final String suffix) throws IOException {
         final File f = File.createTempFile("bogus", suffix, new File(getTestDataDir()));
         f.deleteOnExit();
@@ -1,8 +1,12 @@
 package jdepend.framework;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
 /**
  * @author <b>Mike Clark</b>
  * @author Clarkware Consulting, Inc.
@@ -52,6 +56,61 @@ public class FilterTest extends JDependTestCase {
         assertEquals(1, filter.getFilters().size());
     }
 
+    public void testIncludes() {
+        final PackageFilter filter = new PackageFilter(List.of("com.xyz.tests.*", "org"));
+        filter.addIncludes(List.of("com.xyz.*", "org.xyz.*"));
+
+        assertEquals(2, filter.getIncludes().size());
+        assertTrue(filter.accept("com.xyz.ejb"));
+        assertTrue(filter.accept("com.xyz.tests"));
+        assertFalse(filter.accept("com.xyz.tests.a"));
+        assertFalse(filter.accept("com.abc"));
+        assertFalse(filter.accept("java.lang"));
+        assertFalse(filter.accept("org.abc"));
+        assertTrue(filter.accept("org.xyz.a"));
+
+        filter.addPackage("com.xyz.*");
+        assertFalse(filter.accept("com.xyz.ejb"));
+    }
+
+    public void testIncludesFromFile() throws IOException {
+        final File file = File.createTempFile("jdepend", ".properties");
+        try {
+            Files.write(file.toPath(), List.of("include.xyz=com.xyz.*", "ignore.tests=com.xyz.tests.*"));
+            final PackageFilter filter = new PackageFilter(file);
+            assertTrue(filter.accept("com.xyz.a"));
+            assertFalse(filter.accept("com.xyz.tests.a"));
+            assertFalse(filter.accept("java.lang"));
+        } finally {
+            file.delete();
+        }
+    }
+
+    public void testMatchesPrefixScan() {
+        final List<String> prefixes = List.of("java.", "javax", "com.sun.", "com.s", "org.apache.commons.", "o");
+        final PackageFilter filter = new PackageFilter(prefixes);
+        final List<String> names = List.of(
+                "java", "java.lang", "javax.swing", "javaxyz", "com", "com.sun", "com.sun.x", "com.sa",
+                "org.apache.commons.io", "org", "net", "Default", ""
+        );
+        for (int round = 0; round < 2; round++) {
+            for (final String name : names) {
+                boolean expected = true;
+                for (final String prefix : prefixes) {
+                    expected &= !name.startsWith(prefix);
+                }
+                assertEquals(name, expected, filter.accept(name));
+            }
+        }
+    }
+
+    public void testFiltersAreReadOnly() {
+        final PackageFilter filter = new PackageFilter(List.of("java.*"));
+        assertThrows(UnsupportedOperationException.class, () -> filter.getFilters().add("javax."));
+        filter.addPackage("javax.*");
+        assertFalse(filter.accept("javax.swing"));
+    }
+
     private void assertFiltersExist(final PackageFilter filter) {
         assertFalse(filter.accept("java.lang"));
         assertFalse(filter.accept("javax.ejb"));
@@ -0,0 +1,206 @@
+package jdepend.framework;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import com.sun.management.ThreadMXBean;
+
+/**
+ * Guards the memory footprint of the analysis model and the allocations
+ * of the parser against regressions.
+ *
+ * <p>The heap retained per class is measured on a corpus whose classes
+ * depend on nothing; the heap retained per edge, a package a class depends
+ * upon, is the difference to the same corpus with dependencies. As the
+ * used heap depends on the virtual machine and the garbage collector, the
+ * bounds of the heap are about three times the measured values, so that
+ * only a model that grows several times over fails. The model is also
+ * measured by counting its objects and array slots, which holds on any
+ * virtual machine. A failure tells by how much a bound was exceeded.
+ */
+public class FootprintTest extends JDependTestCase {
+
+    private static final int CLASS_COUNT = 5000;
+    private static final int PACKAGE_COUNT = 50;
+    private static final double FAN_OUT = 8;
+
+    private static final long MAX_RETAINED_BYTES_PER_CLASS = 800;
+    private static final long MAX_RETAINED_BYTES_PER_EDGE = 144;
+    private static final long MAX_ALLOCATED_BYTES_PER_CLASS = 5600;
+    private static final int MAX_SLOTS_PER_DEPENDENCY = 6;
+    private static final int MAX_SLOTS_PER_EMPTY_SET = 4;
+
+    public FootprintTest(final String name) {
+        super(name);
+    }
+
+    public void testRetainedHeap() throws IOException {
+        // Leaves out what the first analysis in a virtual machine initializes
+        measureRetainedHeap(0);
+        final Footprint withoutEdges = measureRetainedHeap(0);
+        final Footprint withEdges = measureRetainedHeap(FAN_OUT);
+
+        final long edges = withEdges.edges - withoutEdges.edges;
+        assertTrue(edges > CLASS_COUNT);
+        assertBound("retained bytes per class", MAX_RETAINED_BYTES_PER_CLASS,
+                withoutEdges.retainedBytes / CLASS_COUNT);
+        assertBound("retained bytes per edge", MAX_RETAINED_BYTES_PER_EDGE,
+                (withEdges.retainedBytes - withoutEdges.retainedBytes) / edges);
+    }
+
+    public void testAllocationsPerClass() throws IOException {
+        final java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof ThreadMXBean) || !((ThreadMXBean) threads).isThreadAllocatedMemorySupported()) {
+            return;
+        }
+        final ThreadMXBean allocations = (ThreadMXBean) threads;
+        final ClassFileGenerator generator = generator(FAN_OUT);
+        final ByteBuffer[] classFiles = new ByteBuffer[CLASS_COUNT];
+        for (int i = 0; i < CLASS_COUNT; i++) {
+            classFiles[i] = ByteBuffer.wrap(generator.getClassFile(i));
+        }
+
+        final ClassFileParser parser = new ClassFileParser(new PackageFilter(Collections.singleton("java.")));
+        for (final ByteBuffer classFile : classFiles) {
+            parser.parse(classFile);
+        }
+        final long threadId = Thread.currentThread().getId();
+        final long before = allocations.getThreadAllocatedBytes(threadId);
+        for (final ByteBuffer classFile : classFiles) {
+            parser.parse(classFile);
+        }
+        final long allocated = allocations.getThreadAllocatedBytes(threadId) - before;
+
+        assertBound("allocated bytes per parsed class", MAX_ALLOCATED_BYTES_PER_CLASS, allocated / CLASS_COUNT);
+    }
+
+    public void testImportedPackagesAreShared() throws IOException {
+        final JDepend jdepend = analyze(null);
+
+        final Set<JavaPackage> importedPackages = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (final JavaPackage javaPackage : jdepend.getPackages()) {
+            for (final JavaClass javaClass : javaPackage.getClasses()) {
+                importedPackages.addAll(javaClass.getImportedPackages());
+            }
+        }
+
+        assertTrue(countEdges(jdepend) > CLASS_COUNT);
+        assertBound("imported package instances", PACKAGE_COUNT, importedPackages.size());
+    }
+
+    public void testPackageSetCapacity() throws IOException {
+        final JDepend jdepend = analyze(null);
+
+        for (final JavaPackage javaPackage : jdepend.getPackages()) {
+            assertCapacity(javaPackage.getName() + " afferents", (PackageSet) javaPackage.getAfferents());
+            assertCapacity(javaPackage.getName() + " efferents", (PackageSet) javaPackage.getEfferents());
+        }
+    }
+
+    public void testClassSummariesAreNotRetained() throws IOException {
+        final JDepend jdepend = analyze(name -> false);
+
+        int classes = 0;
+        for (final JavaPackage javaPackage : jdepend.getPackages()) {
+            assertBound(javaPackage.getName() + " retained classes", 0, javaPackage.getClasses().size());
+            classes += javaPackage.getClassCount();
+        }
+        assertEquals(CLASS_COUNT, classes);
+    }
+
+    private static ClassFileGenerator generator(final double fanOut) {
+        final ClassFileGenerator generator = new ClassFileGenerator(17);
+        generator.setPackageCount(PACKAGE_COUNT);
+        generator.setClassCount(CLASS_COUNT);
+        generator.setFanOut(fanOut);
+        generator.setCycleDensity(0.1);
+        generator.setAbstractness(0.2);
+        return generator;
+    }
+
+    /**
+     * Analyzes a generated corpus.
+     *
+     * @param classDetail Packages whose classes are kept, or <code>null</code> for all.
+     */
+    private static JDepend analyze(final Predicate<String> classDetail) throws IOException {
+        final File jarFile = File.createTempFile("footprint", ".jar");
+        try {
+            generator(FAN_OUT).writeJar(jarFile);
+            return analyze(jarFile, classDetail);
+        } finally {
+            jarFile.delete();
+        }
+    }
+
+    private static JDepend analyze(final File jarFile, final Predicate<String> classDetail) throws IOException {
+        final JDepend jdepend = new JDepend(new PackageFilter(Collections.singleton("java.")));
+        jdepend.addDirectory(jarFile.getPath());
+        jdepend.setClassDetail(classDetail);
+        jdepend.analyze();
+        return jdepend;
+    }
+
+    /**
+     * Analyzes a generated corpus and measures the heap the result retains.
+     */
+    private static Footprint measureRetainedHeap(final double fanOut) throws IOException {
+        final File jarFile = File.createTempFile("footprint", ".jar");
+        try {
+            generator(fanOut).writeJar(jarFile);
+            final Footprint footprint = new Footprint();
+            final long before = usedHeap();
+            final JDepend jdepend = analyze(jarFile, null);
+            footprint.retainedBytes = usedHeap() - before;
+            footprint.edges = countEdges(jdepend);
+            assertEquals(CLASS_COUNT, jdepend.countClasses());
+            Reference.reachabilityFence(jdepend);
+            return footprint;
+        } finally {
+            jarFile.delete();
+        }
+    }
+
+    private static long countEdges(final JDepend jdepend) {
+        long edges = 0;
+        for (final JavaPackage javaPackage : jdepend.getPackages()) {
+            for (final JavaClass javaClass : javaPackage.getClasses()) {
+                edges += javaClass.getImportedPackages().size();
+            }
+        }
+        return edges;
+    }
+
+    private static long usedHeap() {
+        final Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+
+    private static void assertCapacity(final String measure, final PackageSet packages) {
+        assertBound(measure + " array slots",
+                Math.max(MAX_SLOTS_PER_EMPTY_SET, MAX_SLOTS_PER_DEPENDENCY * packages.size()), packages.capacity());
+    }
+
+    private static void assertBound(final String measure, final long bound, final long actual) {
+        if (actual > bound) {
+            fail(measure + ": " + actual + " exceeds the bound of " + bound + " by " + (actual - bound));
+        }
+    }
+
+    private static final class Footprint {
+        private long retainedBytes;
+        private long edges;
+    }
+}
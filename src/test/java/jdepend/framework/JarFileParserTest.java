@@ -1,8 +1,18 @@
 package jdepend.framework;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
@@ -94,6 +104,258 @@ public class JarFileParserTest extends JDependTestCase {
         assertClassesExist(classes);
     }
     
+    public void testParallelBuild() throws IOException {
+        FileManager fm = new FileManager();
+        fm.addDirectory(getTestDataDir());
+        fm.addDirectory(getJavaTestDir());
+
+        JavaClassBuilder sequential = new JavaClassBuilder(fm);
+        JavaClassBuilder parallel = new JavaClassBuilder(fm);
+        parallel.setThreads(4);
+
+        List<String> expected = classNames(sequential.build());
+        List<String> actual = classNames(parallel.build());
+
+        assertTrue(expected.size() > 10);
+        assertEquals(expected, actual);
+    }
+
+    public void testParallelBuildClosesArchives() throws IOException {
+        File openFiles = new File("/proc/self/fd");
+        if (!openFiles.isDirectory()) {
+            return;
+        }
+        File directory = Files.createTempDirectory("archives").toFile();
+        try {
+            ClassFileGenerator generator = new ClassFileGenerator(3);
+            generator.setClassCount(200);
+            File first = new File(directory, "a.jar");
+            generator.writeJar(first);
+            Files.copy(jarFile.toPath(), new File(directory, "b.jar").toPath());
+
+            FileManager fm = new FileManager();
+            fm.addDirectory(directory.getPath());
+            for (boolean memoryMapped : new boolean[] {false, true}) {
+                JavaClassBuilder builder = new JavaClassBuilder(fm);
+                builder.setMemoryMappedArchives(memoryMapped);
+                builder.setThreads(2);
+                List<Boolean> firstOpen = new ArrayList<>();
+                builder.build(javaClass -> {
+                    if (javaClass.getPackageName().startsWith("jdepend.")) {
+                        firstOpen.add(isOpen(openFiles, first));
+                    }
+                });
+
+                assertFalse(firstOpen.isEmpty());
+                assertFalse(firstOpen.contains(true));
+            }
+        } finally {
+            for (File file : directory.listFiles()) {
+                file.delete();
+            }
+            directory.delete();
+        }
+    }
+
+    public void testMemoryMappedArchives() throws IOException {
+        FileManager fm = new FileManager();
+        fm.addDirectory(getTestDataDir());
+
+        JavaClassBuilder builder = new JavaClassBuilder(fm);
+        JavaClassBuilder mapped = new JavaClassBuilder(fm);
+        mapped.setMemoryMappedArchives(true);
+
+        assertEquals(classNames(builder.buildClasses(jarFile)), classNames(mapped.buildClasses(jarFile)));
+        assertEquals(classNames(builder.buildClasses(zipFile)), classNames(mapped.buildClasses(zipFile)));
+
+        List<String> expected = classNames(builder.build());
+        assertEquals(expected, classNames(mapped.build()));
+
+        mapped.setThreads(4);
+        assertEquals(expected, classNames(mapped.build()));
+    }
+
+    public void testInvalidMemoryMappedArchive() {
+        JavaClassBuilder builder = new JavaClassBuilder();
+        builder.setMemoryMappedArchives(true);
+        File bogusFile = new File(getTestDataDir() + "bogus.jar");
+
+        assertThrows(
+                IOException.class,
+                () -> builder.buildClasses(bogusFile),
+                "Should raise IOException"
+        );
+    }
+
+    public void testNestedArchives() throws IOException {
+        byte[] jar = Files.readAllBytes(jarFile.toPath());
+        File war = File.createTempFile("nested", ".war");
+        File ear = File.createTempFile("nested", ".ear");
+        try {
+            Files.write(war.toPath(), archive("WEB-INF/lib/test.jar", jar, ZipEntry.STORED));
+            Files.write(ear.toPath(), archive("web.war", Files.readAllBytes(war.toPath()), ZipEntry.DEFLATED));
+
+            JavaClassBuilder builder = new JavaClassBuilder();
+            List<String> expected = classNames(builder.buildClasses(jarFile));
+
+            assertEquals(0, builder.buildClasses(war).size());
+
+            builder.setNestedArchiveDepth(1);
+            assertEquals(expected, classNames(builder.buildClasses(war)));
+            assertEquals(0, builder.buildClasses(ear).size());
+
+            builder.setNestedArchiveDepth(2);
+            assertEquals(expected, classNames(builder.buildClasses(ear)));
+
+            builder.setMemoryMappedArchives(true);
+            assertEquals(expected, classNames(builder.buildClasses(war)));
+            assertEquals(expected, classNames(builder.buildClasses(ear)));
+
+            FileManager fm = new FileManager();
+            fm.addDirectory(ear.getPath());
+            JavaClassBuilder parallel = new JavaClassBuilder(fm);
+            parallel.setNestedArchiveDepth(2);
+            parallel.setThreads(4);
+            assertEquals(expected, classNames(parallel.build()));
+
+            parallel.setMemoryMappedArchives(true);
+            assertEquals(expected, classNames(parallel.build()));
+            assertEquals(expected.size(), parallel.countClasses());
+
+            parallel.setNestedArchiveDepth(1);
+            assertEquals(0, parallel.countClasses());
+        } finally {
+            war.delete();
+            ear.delete();
+        }
+    }
+
+    public void testFilteredEntries() throws IOException {
+        File war = File.createTempFile("classes", ".war");
+        try {
+            Files.write(war.toPath(), archive("WEB-INF/classes/jdepend/framework/ExampleInterface.class",
+                    Files.readAllBytes(new File(getJavaTestDir() + getPackageSubDir() + "ExampleInterface.class")
+                            .toPath()), ZipEntry.DEFLATED));
+
+            PackageFilter filter = new PackageFilter(Collections.singleton("jdepend.framework"));
+            FileManager fm = new FileManager();
+            fm.addDirectory(jarFile.getPath());
+            fm.addDirectory(war.getPath());
+            JavaClassBuilder builder = new JavaClassBuilder(new ClassFileParser(filter), fm);
+            assertEquals(0, builder.buildClasses(jarFile).size());
+            assertEquals(0, builder.buildClasses(war).size());
+            assertEquals(0, builder.countClasses());
+            assertEquals(0, builder.build().size());
+
+            JavaClassBuilder unfiltered = new JavaClassBuilder(new ClassFileParser(new PackageFilter(
+                    Collections.singleton("java."))), fm);
+            assertEquals(6, unfiltered.countClasses());
+            assertEquals(6, unfiltered.build().size());
+        } finally {
+            war.delete();
+        }
+    }
+
+    public void testClassDirectoryInZip() throws IOException {
+        File zip = File.createTempFile("classes", ".zip");
+        try {
+            Files.write(zip.toPath(), archive("classes/jdepend/framework/ExampleInterface.class",
+                    Files.readAllBytes(new File(getJavaTestDir() + getPackageSubDir() + "ExampleInterface.class")
+                            .toPath()), ZipEntry.DEFLATED));
+            FileManager fm = new FileManager();
+            fm.addDirectory(zip.getPath());
+
+            PackageFilter excluding = new PackageFilter(Collections.singleton("jdepend.framework"));
+            PackageFilter including = new PackageFilter(Collections.singleton("java."));
+            including.addInclude("jdepend.framework");
+            PackageFilter unfiltered = new PackageFilter(Collections.singleton("java."));
+            for (PackageFilter filter : List.of(excluding, including, unfiltered)) {
+                int expected = filter == excluding ? 0 : 1;
+                for (boolean memoryMapped : new boolean[] {false, true}) {
+                    for (int threads : new int[] {1, 4}) {
+                        JavaClassBuilder builder = new JavaClassBuilder(new ClassFileParser(filter), fm);
+                        builder.setMemoryMappedArchives(memoryMapped);
+                        builder.setThreads(threads);
+
+                        Collection<JavaClass> classes = builder.build();
+                        assertEquals(expected, classes.size());
+                        // The entry is read to find its package, and counted
+                        assertEquals(1, builder.countClasses());
+                        if (expected > 0) {
+                            assertTrue(classes.contains(new JavaClass("jdepend.framework.ExampleInterface")));
+                        }
+                    }
+                }
+            }
+        } finally {
+            zip.delete();
+        }
+    }
+
+    public void testPackagePath() {
+        assertTrue(JavaClassBuilder.isPackagePath("lib/a.jar", "classes/a/C.class"));
+        assertTrue(JavaClassBuilder.isPackagePath("a.WAR", "WEB-INF/classes/a/C.class"));
+        assertTrue(JavaClassBuilder.isPackagePath("a.war!/WEB-INF/lib/b.jar", "a/C.class"));
+        assertFalse(JavaClassBuilder.isPackagePath("a.zip", "classes/a/C.class"));
+        assertFalse(JavaClassBuilder.isPackagePath("a.war", "WEB-INF/lib/C.class"));
+    }
+
+    public void testEntryPackageName() {
+        assertEquals("a.b", JavaClassBuilder.entryPackageName("a/b/C.class"));
+        assertEquals("Default", JavaClassBuilder.entryPackageName("C.class"));
+        assertEquals("a.b", JavaClassBuilder.entryPackageName("WEB-INF/classes/a/b/C.class"));
+        assertEquals("a", JavaClassBuilder.entryPackageName("BOOT-INF/classes/a/C.class"));
+        assertEquals("a.b", JavaClassBuilder.entryPackageName("META-INF/versions/11/a/b/C.class"));
+        assertEquals("Default", JavaClassBuilder.entryPackageName("META-INF/versions/9/module-info.class"));
+        assertEquals("Default", JavaClassBuilder.entryPackageName("WEB-INF/classes/C.class"));
+        assertEquals("WEB-INF.lib", JavaClassBuilder.entryPackageName("WEB-INF/lib/C.class"));
+    }
+
+    public void testInvalidNestedArchive() throws IOException {
+        File war = File.createTempFile("nested", ".war");
+        try {
+            Files.write(war.toPath(), archive("WEB-INF/lib/bogus.jar", new byte[100], ZipEntry.DEFLATED));
+
+            JavaClassBuilder builder = new JavaClassBuilder();
+            builder.setNestedArchiveDepth(1);
+            assertEquals(0, builder.buildClasses(war).size());
+        } finally {
+            war.delete();
+        }
+    }
+
+    public void testTruncatedEntry() throws IOException {
+        byte[] classFile = Files.readAllBytes(
+                new File(getJavaTestDir() + getPackageSubDir() + "ExampleInterface.class").toPath());
+        File jar = File.createTempFile("truncated", ".jar");
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ZipOutputStream out = new ZipOutputStream(bytes)) {
+                out.putNextEntry(new ZipEntry("jdepend/framework/Truncated.class"));
+                out.write(classFile, 0, classFile.length / 2);
+                out.putNextEntry(new ZipEntry("jdepend/framework/ExampleInterface.class"));
+                out.write(classFile);
+            }
+            Files.write(jar.toPath(), bytes.toByteArray());
+
+            FileManager fm = new FileManager();
+            fm.addDirectory(jar.getPath());
+            for (boolean memoryMapped : new boolean[] {false, true}) {
+                for (int threads : new int[] {1, 4}) {
+                    JavaClassBuilder builder = new JavaClassBuilder(fm);
+                    builder.setMemoryMappedArchives(memoryMapped);
+                    builder.setThreads(threads);
+                    Collection<JavaClass> classes = builder.build();
+
+                    assertEquals(1, classes.size());
+                    assertTrue(classes.contains(new JavaClass("jdepend.framework.ExampleInterface")));
+                }
+            }
+        } finally {
+            jar.delete();
+        }
+    }
+
     public void testCountClasses() throws IOException {
 
         JDepend jdepend = new JDepend();
@@ -106,6 +368,144 @@ public class JarFileParserTest extends JDependTestCase {
         assertEquals(8, jdepend.countClasses());
     }
 
+    public void testCountClassesReusesScan() throws IOException {
+        File directory = Files.createTempDirectory("count").toFile();
+        File classFile = new File(directory, "ExampleTest.class");
+        try {
+            Files.copy(jarFile.toPath(), new File(directory, "test.jar").toPath());
+
+            FileManager fm = new FileManager();
+            fm.addDirectory(directory.getPath());
+            JavaClassBuilder builder = new JavaClassBuilder(fm);
+            assertEquals(5, builder.countClasses());
+
+            Files.write(classFile.toPath(), new byte[0]);
+            assertEquals(5, builder.countClasses());
+            assertEquals(5, builder.build().size());
+
+            fm.refresh();
+            assertEquals(6, builder.countClasses());
+        } finally {
+            for (File file : directory.listFiles()) {
+                file.delete();
+            }
+            directory.delete();
+        }
+    }
+
+    public void testAnalysisRescans() throws IOException {
+        File directory = Files.createTempDirectory("rescan").toFile();
+        try {
+            Files.copy(jarFile.toPath(), new File(directory, "test.jar").toPath());
+
+            JDepend jdepend = new JDepend();
+            jdepend.addDirectory(directory.getPath());
+            int count = jdepend.countClasses();
+            jdepend.analyze();
+            assertNull(jdepend.getPackage("jdepend.textui"));
+
+            Files.copy(new File(getJavaMainDir() + "jdepend" + File.separator + "textui" + File.separator
+                    + "JDepend.class").toPath(), new File(directory, "JDepend.class").toPath());
+            jdepend.analyze();
+            assertNotNull(jdepend.getPackage("jdepend.textui"));
+            assertEquals(count + 1, jdepend.countClasses());
+        } finally {
+            for (File file : directory.listFiles()) {
+                file.delete();
+            }
+            directory.delete();
+        }
+    }
+
+    /**
+     * Indicates whether the process has the specified file open, as told by
+     * the links to the open files in the specified directory.
+     */
+    @SuppressWarnings("EmptyCatchBlock")
+    private static boolean isOpen(File openFiles, File file) {
+        Path path = file.getAbsoluteFile().toPath();
+        for (File openFile : openFiles.listFiles()) {
+            try {
+                if (Files.readSymbolicLink(openFile.toPath()).equals(path)) {
+                    return true;
+                }
+            } catch (IOException ignore) {
+            }
+        }
+        return false;
+    }
+
+    public void testCountReportsUnreadableArchive() throws IOException {
+        File jar = File.createTempFile("unreadable", ".jar");
+        PrintStream err = System.err;
+        try {
+            Files.write(jar.toPath(), new byte[] {1, 2, 3});
+            FileManager fm = new FileManager();
+            fm.addDirectory(jar.getPath());
+            for (boolean memoryMapped : new boolean[] {false, true}) {
+                JavaClassBuilder builder = new JavaClassBuilder(fm);
+                builder.setMemoryMappedArchives(memoryMapped);
+                ByteArrayOutputStream messages = new ByteArrayOutputStream();
+                System.setErr(new PrintStream(messages, true));
+                assertEquals(0, builder.countClasses());
+                System.setErr(err);
+                assertTrue(messages.toString().trim().length() > 0);
+            }
+        } finally {
+            System.setErr(err);
+            jar.delete();
+        }
+    }
+
+    public void testCountAfterAnalysis() throws IOException {
+        File directory = Files.createTempDirectory("count").toFile();
+        File archive = new File(directory, "test.jar");
+        try {
+            Files.copy(jarFile.toPath(), archive.toPath());
+
+            JDepend jdepend = new JDepend();
+            jdepend.addDirectory(directory.getPath());
+            int count = jdepend.countClasses();
+            jdepend.analyze();
+            Files.delete(archive.toPath());
+            assertEquals(count, jdepend.countClasses());
+
+            jdepend.analyze();
+            assertEquals(0, jdepend.countClasses());
+        } finally {
+            for (File file : directory.listFiles()) {
+                file.delete();
+            }
+            directory.delete();
+        }
+    }
+
+    private static byte[] archive(String name, byte[] content, int method) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(bytes)) {
+            ZipEntry entry = new ZipEntry(name);
+            entry.setMethod(method);
+            if (method == ZipEntry.STORED) {
+                CRC32 crc = new CRC32();
+                crc.update(content);
+                entry.setCrc(crc.getValue());
+                entry.setSize(content.length);
+            }
+            out.putNextEntry(entry);
+            out.write(content);
+            out.closeEntry();
+        }
+        return bytes.toByteArray();
+    }
+
+    private static List<String> classNames(Collection<JavaClass> classes) {
+        List<String> names = new ArrayList<>();
+        for (JavaClass javaClass : classes) {
+            names.add(javaClass.getClassName() + " " + javaClass.getImportedPackages().size());
+        }
+        return names;
+    }
+
     private void assertClassesExist(Collection<JavaClass> classes) {
         assertTrue(classes.contains(new JavaClass(
                 "jdepend.framework.ExampleAbstractClass")));
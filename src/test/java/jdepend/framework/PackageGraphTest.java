@@ -0,0 +1,75 @@
+package jdepend.framework;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class PackageGraphTest extends JDependTestCase {
+
+    public PackageGraphTest(final String name) {
+        super(name);
+    }
+
+    public void testGraph() {
+        final JavaPackage a = new JavaPackage("A");
+        final JavaPackage b = new JavaPackage("B");
+        final JavaPackage c = new JavaPackage("C");
+        final JavaPackage d = new JavaPackage("D");
+
+        a.dependsUpon(c);
+        a.dependsUpon(b);
+        b.dependsUpon(c);
+        d.dependsUpon(a);
+
+        final PackageGraph graph = new PackageGraph(Collections.singleton(a));
+
+        assertEquals(3, graph.size());
+        assertEquals(a, graph.getPackage(0));
+        assertEquals(c, graph.getPackage(1));
+        assertEquals(b, graph.getPackage(2));
+        assertEquals(-1, graph.indexOf(d));
+
+        assertTrue(Arrays.equals(new int[] {1, 2}, graph.getEfferents(0)));
+        assertTrue(Arrays.equals(new int[] {1}, graph.getEfferents(2)));
+        assertEquals(0, graph.getEfferents(1).length);
+        assertTrue(Arrays.equals(new int[] {0, 2}, graph.getAfferents(1)));
+        assertEquals(0, graph.getAfferents(0).length);
+
+        assertTrue(graph.dependsUpon(0, 2));
+        assertFalse(graph.dependsUpon(2, 0));
+    }
+
+    public void testHubPackage() {
+        final JavaPackage hub = new JavaPackage("common.util");
+        final List<JavaPackage> clients = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            final JavaPackage client = new JavaPackage("client" + i);
+            client.dependsUpon(hub);
+            client.dependsUpon(new JavaPackage("common.util"));
+            clients.add(client);
+        }
+
+        final Collection<JavaPackage> afferents = hub.getAfferents();
+        assertEquals(clients.size(), afferents.size());
+        assertEquals(clients, new ArrayList<>(afferents));
+        assertTrue(afferents.contains(new JavaPackage("client4999")));
+        assertFalse(afferents.contains(new JavaPackage("client5000")));
+        assertFalse(afferents.contains(hub));
+
+        final PackageGraph graph = new PackageGraph(clients);
+        assertEquals(clients.size() + 1, graph.size());
+        assertEquals(clients.size(), graph.getAfferents(graph.indexOf(hub)).length);
+    }
+
+    public void testReadOnlyViews() {
+        final JavaPackage a = new JavaPackage("A");
+        a.dependsUpon(new JavaPackage("B"));
+
+        assertThrows(UnsupportedOperationException.class, () -> a.getEfferents().add(new JavaPackage("C")));
+        assertThrows(UnsupportedOperationException.class, () -> a.getEfferents().clear());
+    }
+}
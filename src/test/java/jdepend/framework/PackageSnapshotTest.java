@@ -0,0 +1,176 @@
+package jdepend.framework;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class PackageSnapshotTest extends JDependTestCase {
+
+    private Collection<JavaPackage> packages;
+
+    public PackageSnapshotTest(final String name) {
+        super(name);
+    }
+
+    protected void setUp() {
+        super.setUp();
+        try {
+            final JDepend jdepend = new JDepend();
+            jdepend.addDirectory(getJavaMainDir());
+            jdepend.addDirectory(getJavaTestDir());
+            packages = jdepend.analyze();
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public void testWriteAndLoad() throws IOException {
+        final File file = File.createTempFile("jdepend", ".snapshot");
+        try {
+            PackageSnapshot.write(packages, file);
+            final PackageSnapshot snapshot = PackageSnapshot.load(file);
+
+            assertEquals(packages.size(), snapshot.getPackageCount());
+            int classCount = 0;
+            for (final JavaPackage expected : packages) {
+                final int index = snapshot.indexOf(expected.getName());
+                assertTrue(expected.getName(), index >= 0);
+                assertEquals(expected.getName(), snapshot.getPackageName(index));
+                assertEquals(expected.getClassCount(), snapshot.getClassCount(index));
+                assertEquals(expected.getAbstractClassCount(), snapshot.getAbstractClassCount(index));
+                assertEquals(expected.afferentCoupling(), snapshot.afferentCoupling(index));
+                assertEquals(expected.efferentCoupling(), snapshot.efferentCoupling(index));
+                assertEquals(expected.abstractness(), snapshot.abstractness(index), 0);
+                assertEquals(expected.instability(), snapshot.instability(index), 0);
+                assertEquals(expected.distance(), snapshot.distance(index), 0);
+                assertEquals(names(expected.getEfferents()), names(snapshot, snapshot.getEfferents(index)));
+                assertEquals(names(expected.getAfferents()), names(snapshot, snapshot.getAfferents(index)));
+                classCount += expected.getClassCount();
+            }
+            assertEquals(classCount, snapshot.getClassCount());
+            assertEquals(-1, snapshot.indexOf("no.such.package"));
+        } finally {
+            file.delete();
+        }
+    }
+
+    public void testInterruptedWrite() throws IOException {
+        final File directory = Files.createTempDirectory("snapshot").toFile();
+        final File file = new File(directory, "jdepend.snapshot");
+        try {
+            PackageSnapshot.write(packages, file);
+            final Collection<JavaPackage> failing = new AbstractCollection<JavaPackage>() {
+                @Override
+                public Iterator<JavaPackage> iterator() {
+                    throw new IllegalStateException("interrupted");
+                }
+
+                @Override
+                public int size() {
+                    return 1;
+                }
+            };
+            assertThrows(IllegalStateException.class, () -> PackageSnapshot.write(failing, file));
+
+            assertEquals(packages.size(), PackageSnapshot.load(file).getPackageCount());
+            assertEquals(1, directory.listFiles().length);
+        } finally {
+            file.delete();
+            directory.delete();
+        }
+    }
+
+    public void testToPackages() throws IOException {
+        final PackageSnapshot snapshot = PackageSnapshot.read(ByteBuffer.wrap(toBytes(packages)));
+        final List<JavaPackage> loaded = snapshot.toPackages();
+
+        final List<JavaPackage> expected = new ArrayList<>(packages);
+        expected.sort(JavaPackage.byName);
+        assertEquals(names(expected), names(loaded));
+
+        for (int i = 0; i < loaded.size(); i++) {
+            final JavaPackage original = expected.get(i);
+            final JavaPackage copy = loaded.get(i);
+            assertEquals(names(original.getEfferents()), names(copy.getEfferents()));
+            assertEquals(names(original.getAfferents()), names(copy.getAfferents()));
+            assertEquals(classNames(original.getClasses()), classNames(copy.getClasses()));
+            assertEquals(original.containsCycle(), copy.containsCycle());
+        }
+    }
+
+    public void testClasses() throws IOException {
+        final JavaPackage javaPackage = new JavaPackage("a");
+        final JavaClass javaClass = new JavaClass("a.Example");
+        javaClass.setPackageName("a");
+        javaClass.setSourceFile("Example.java");
+        javaClass.isAbstract(true);
+        javaClass.addImportedPackage(new JavaPackage("b.été"));
+        javaPackage.addClass(javaClass);
+        javaPackage.dependsUpon(new JavaPackage("b.été"));
+
+        final PackageSnapshot snapshot = PackageSnapshot.read(
+                ByteBuffer.wrap(toBytes(Collections.singleton(javaPackage))));
+        assertEquals(2, snapshot.getPackageCount());
+        assertEquals(1, snapshot.afferentCoupling(snapshot.indexOf("b.été")));
+
+        final JavaClass loaded = snapshot.toPackages().get(0).getClasses().iterator().next();
+        assertEquals("a.Example", loaded.getClassName());
+        assertEquals("a", loaded.getPackageName());
+        assertEquals("Example.java", loaded.getSourceFile());
+        assertTrue(loaded.isAbstract());
+        assertEquals("b.été", loaded.getImportedPackages().iterator().next().getName());
+    }
+
+    public void testInvalidSnapshot() throws IOException {
+        final byte[] bytes = toBytes(packages);
+        assertThrows(
+                IOException.class,
+                () -> PackageSnapshot.read(ByteBuffer.wrap(bytes, 0, bytes.length - 1)),
+                "Truncated snapshot"
+        );
+        bytes[7] = 99;
+        assertThrows(IOException.class, () -> PackageSnapshot.read(ByteBuffer.wrap(bytes)), "Unknown version");
+        assertThrows(IOException.class, () -> PackageSnapshot.read(ByteBuffer.wrap(new byte[3])), "Not a snapshot");
+    }
+
+    private static byte[] toBytes(final Collection<JavaPackage> packages) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PackageSnapshot.write(packages, out);
+        return out.toByteArray();
+    }
+
+    private static List<String> names(final Collection<JavaPackage> packages) {
+        final List<String> names = new ArrayList<>();
+        for (final JavaPackage javaPackage : packages) {
+            names.add(javaPackage.getName());
+        }
+        return names;
+    }
+
+    private static List<String> names(final PackageSnapshot snapshot, final int[] indexes) {
+        final List<String> names = new ArrayList<>();
+        for (final int index : indexes) {
+            names.add(snapshot.getPackageName(index));
+        }
+        return names;
+    }
+
+    private static List<String> classNames(final Collection<JavaClass> classes) {
+        final List<String> names = new ArrayList<>();
+        for (final JavaClass javaClass : classes) {
+            names.add(javaClass.getClassName());
+        }
+        Collections.sort(names);
+        return names;
+    }
+}
@@ -2,6 +2,7 @@ package jdepend.framework;
 
 import java.io.File;
 import java.util.Collection;
+import java.util.Properties;
 
 /**
  * @author <b>Mike Clark</b>
@@ -43,6 +44,21 @@ public class PropertyConfiguratorTest extends JDependTestCase {
         assertTrue(filters.contains("com.xyz.tests.*"));
     }
 
+    public void testIncludedPackages() {
+        Properties p = new Properties();
+        p.setProperty("include.xyz", "com.xyz.*, org.xyz.*");
+        p.setProperty("ignore.tests", "com.xyz.tests.*");
+        p.setProperty("com.xyz.a", "0");
+
+        PropertyConfigurator c = new PropertyConfigurator(p);
+
+        assertEquals(2, c.getIncludedPackages().size());
+        assertTrue(c.getIncludedPackages().contains("org.xyz.*"));
+        assertEquals(1, c.getFilteredPackages().size());
+        assertEquals(1, c.getConfiguredPackages().size());
+        assertEquals("com.xyz.a", c.getConfiguredPackages().iterator().next().getName());
+    }
+
     public void testDefaultPackages() {
         JDepend j = new JDepend();
 
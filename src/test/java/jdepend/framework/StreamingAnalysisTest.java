@@ -0,0 +1,101 @@
+package jdepend.framework;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+public class StreamingAnalysisTest extends JDependTestCase {
+
+    public StreamingAnalysisTest(final String name) {
+        super(name);
+    }
+
+    public void testStreamingBuild() throws IOException {
+        for (final int threads : new int[] {1, 4}) {
+            final FileManager fileManager = new FileManager();
+            fileManager.addDirectory(getJavaMainDir());
+            fileManager.addDirectory(getJavaTestDir());
+            final JavaClassBuilder builder = new JavaClassBuilder(fileManager);
+            builder.setThreads(threads);
+
+            final Thread caller = Thread.currentThread();
+            final List<String> streamed = new ArrayList<>();
+            builder.build(javaClass -> {
+                assertSame(caller, Thread.currentThread());
+                streamed.add(javaClass.getClassName());
+            });
+
+            final List<String> built = new ArrayList<>();
+            for (final JavaClass javaClass : builder.build()) {
+                built.add(javaClass.getClassName());
+            }
+            assertEquals(built, streamed);
+            assertEquals(builder.countClasses(), streamed.size());
+        }
+    }
+
+    public void testReaderThreads() throws IOException {
+        final FileManager fileManager = new FileManager();
+        fileManager.addDirectory(getJavaMainDir());
+        fileManager.addDirectory(getJavaTestDir());
+        final JavaClassBuilder builder = new JavaClassBuilder(fileManager);
+        final List<String> expected = new ArrayList<>();
+        builder.build(javaClass -> expected.add(javaClass.getClassName()));
+
+        builder.setThreads(2);
+        assertEquals(2, builder.getReaderThreads());
+        for (final int readerThreads : new int[] {1, 3}) {
+            builder.setReaderThreads(readerThreads);
+            assertEquals(readerThreads, builder.getReaderThreads());
+            final List<String> built = new ArrayList<>();
+            builder.build(javaClass -> built.add(javaClass.getClassName()));
+            assertEquals(expected, built);
+        }
+    }
+
+    public void testClassDetail() throws IOException {
+        final JDepend full = new JDepend();
+        full.addDirectory(getJavaMainDir());
+        full.addDirectory(getJavaTestDir());
+        final Collection<JavaPackage> expected = full.analyze();
+
+        final JDepend reduced = new JDepend();
+        reduced.addDirectory(getJavaMainDir());
+        reduced.addDirectory(getJavaTestDir());
+        reduced.setClassDetail("jdepend.textui"::equals);
+        reduced.analyze();
+
+        assertEquals(expected.size(), reduced.countPackages());
+        for (final JavaPackage expectedPackage : expected) {
+            final JavaPackage actual = reduced.getPackage(expectedPackage.getName());
+            assertEquals(expectedPackage.getClassCount(), actual.getClassCount());
+            assertEquals(expectedPackage.getAbstractClassCount(), actual.getAbstractClassCount());
+            assertEquals(expectedPackage.getConcreteClassCount(), actual.getConcreteClassCount());
+            assertEquals(expectedPackage.afferentCoupling(), actual.afferentCoupling());
+            assertEquals(expectedPackage.efferentCoupling(), actual.efferentCoupling());
+            assertEquals(expectedPackage.distance(), actual.distance(), 0);
+            if (actual.getName().equals("jdepend.textui")) {
+                assertEquals(expectedPackage.getClasses(), actual.getClasses());
+            } else {
+                assertTrue(actual.getClasses().isEmpty());
+            }
+        }
+        assertTrue(reduced.getPackage("jdepend.framework").getClassCount() > 0);
+    }
+
+    public void testClassSummary() {
+        final JavaPackage javaPackage = new JavaPackage("a");
+        final JavaClass abstractClass = new JavaClass("a.A");
+        abstractClass.isAbstract(true);
+        javaPackage.addClassSummary(abstractClass);
+        javaPackage.addClassSummary(abstractClass);
+        javaPackage.addClassSummary(new JavaClass("a.B"));
+        javaPackage.addClass(new JavaClass("a.C"));
+
+        assertEquals(3, javaPackage.getClassCount());
+        assertEquals(1, javaPackage.getAbstractClassCount());
+        assertEquals(2, javaPackage.getConcreteClassCount());
+        assertEquals(1, javaPackage.getClasses().size());
+    }
+}
@@ -0,0 +1,167 @@
+package jdepend.framework;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+public class SymbolTableTest extends JDependTestCase {
+
+    public SymbolTableTest(final String name) {
+        super(name);
+    }
+
+    public void testIntern() {
+        final SymbolTable symbols = new SymbolTable();
+        final int id = symbols.intern("jdepend.framework");
+
+        assertEquals(id, symbols.intern("jdepend.framework"));
+        assertEquals(id, symbols.intern(new String("jdepend.framework")));
+        assertTrue(id != symbols.intern("jdepend.textui"));
+        assertEquals("jdepend.framework", symbols.getName(id));
+        assertSame(symbols.getPackage(id), symbols.getPackage("jdepend.framework"));
+        assertEquals(new JavaPackage("jdepend.framework"), symbols.getPackage(id));
+    }
+
+    public void testPackageOf() {
+        final SymbolTable symbols = new SymbolTable();
+        final SymbolTable.Lookup lookup = symbols.newLookup();
+        final int id = symbols.intern("java.lang");
+
+        assertEquals(id, packageOf(lookup, "java/lang/String"));
+        assertEquals(id, packageOf(lookup, "[[Ljava/lang/String;"));
+        assertEquals(-1, packageOf(lookup, "[I"));
+        assertEquals("Default", symbols.getName(packageOf(lookup, "Example")));
+        assertEquals("Default", symbols.getName(packageOf(lookup, "")));
+        assertEquals("b.été", symbols.getName(packageOf(lookup, "b/été/Example")));
+        assertEquals(symbols.intern("b.été"), packageOf(lookup, "b/été/Other"));
+    }
+
+    public void testSharedImports() throws IOException {
+        final ClassFileParser parser = new ClassFileParser();
+        final JavaClass concrete = parser.parse(
+                new File(getJavaTestDir() + getPackageSubDir() + "ExampleConcreteClass.class"));
+        final JavaClass anAbstract = parser.parse(
+                new File(getJavaTestDir() + getPackageSubDir() + "ExampleAbstractClass.class"));
+
+        final SymbolTable symbols = parser.getSymbolTable();
+        for (final JavaClass javaClass : List.of(concrete, anAbstract)) {
+            assertSame(symbols.getPackage(javaClass.getPackageName()).getName(), javaClass.getPackageName());
+            for (final JavaPackage imported : javaClass.getImportedPackages()) {
+                assertSame(symbols.getPackage(imported.getName()), imported);
+            }
+        }
+    }
+
+    public void testConcurrentInterning() throws Exception {
+        final SymbolTable symbols = new SymbolTable();
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<int[]>> results = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                results.add(executor.submit(() -> {
+                    final SymbolTable.Lookup lookup = symbols.newLookup();
+                    final int[] ids = new int[1000];
+                    for (int i = 0; i < ids.length; i++) {
+                        ids[i] = packageOf(lookup, "p" + i + "/Example");
+                        assertEquals("p" + i, symbols.getPackage(ids[i]).getName());
+                    }
+                    return ids;
+                }));
+            }
+            final int[] expected = results.get(0).get();
+            for (final Future<int[]> result : results) {
+                assertTrue(Arrays.equals(expected, result.get()));
+            }
+            assertEquals(1001, symbols.size());
+            for (int i = 0; i < expected.length; i++) {
+                assertEquals("p" + i, symbols.getName(expected[i]));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    public void testSymbolTablePerBuild() throws IOException {
+        final ClassFileParser parser = new ClassFileParser();
+        final FileManager fileManager = new FileManager();
+        fileManager.addDirectory(getJavaTestDir());
+        final JavaClassBuilder builder = new JavaClassBuilder(parser, fileManager);
+
+        builder.build();
+        final SymbolTable first = parser.getSymbolTable();
+        builder.build();
+
+        assertTrue(first != parser.getSymbolTable());
+        assertEquals(first.size(), parser.getSymbolTable().size());
+    }
+
+    public void testAnalysesWithDifferentSymbols() throws IOException {
+        final ClassFileGenerator generator = new ClassFileGenerator(5);
+        generator.setPackageCount(20);
+        generator.setClassCount(100);
+        final File jarFile = File.createTempFile("symbols", ".jar");
+        try {
+            generator.writeJar(jarFile);
+            final JDepend jdepend = new JDepend();
+            jdepend.addDirectory(jarFile.getPath());
+            jdepend.analyze();
+
+            writeJar(jarFile, Paths.get(getJavaMainDir()));
+            jdepend.analyze();
+            final JDepend expected = new JDepend();
+            expected.addDirectory(jarFile.getPath());
+            expected.analyze();
+
+            for (final JavaPackage javaPackage : expected.getPackages()) {
+                assertEquals(javaPackage.getName(), names(javaPackage.getEfferents()),
+                        names(jdepend.getPackage(javaPackage.getName()).getEfferents()));
+            }
+        } finally {
+            jarFile.delete();
+        }
+    }
+
+    private static void writeJar(final File jarFile, final Path directory) throws IOException {
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jarFile));
+             Stream<Path> files = Files.walk(directory)) {
+            for (final Path classFile : (Iterable<Path>) files.filter(f -> f.toString().endsWith(".class"))::iterator) {
+                final String name = directory.relativize(classFile).toString();
+                out.putNextEntry(new ZipEntry(name.replace(File.separatorChar, '/')));
+                out.write(Files.readAllBytes(classFile));
+                out.closeEntry();
+            }
+        }
+    }
+
+    private static Set<String> names(final Collection<JavaPackage> packages) {
+        final Set<String> names = new TreeSet<>();
+        for (final JavaPackage javaPackage : packages) {
+            names.add(javaPackage.getName());
+        }
+        return names;
+    }
+
+    private static int packageOf(final SymbolTable.Lookup lookup, final String name) {
+        final byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        final ByteBuffer buffer = ByteBuffer.allocate(bytes.length + 3);
+        buffer.put(new byte[3]).put(bytes);
+        return lookup.packageOf(buffer, 3, bytes.length);
+    }
+}
@@ -0,0 +1,209 @@
+package jdepend.framework;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.jar.JarFile;
+import java.util.zip.CRC32;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ZipArchiveTest extends JDependTestCase {
+
+    private Inflater inflater;
+
+    public ZipArchiveTest(final String name) {
+        super(name);
+    }
+
+    protected void setUp() {
+        super.setUp();
+        inflater = new Inflater(true);
+    }
+
+    protected void tearDown() {
+        inflater.end();
+        super.tearDown();
+    }
+
+    public void testJarFile() throws IOException {
+        assertSameContent(new File(getTestDataDir() + "test.jar"));
+    }
+
+    public void testZipFile() throws IOException {
+        assertSameContent(new File(getTestDataDir() + "test.zip"));
+    }
+
+    public void testStoredEntriesAreNotCopied() throws IOException {
+        final byte[] content = "stored content".getBytes();
+        final ByteBuffer zip = ByteBuffer.wrap(zip(ZipEntry.STORED, content));
+
+        final ZipArchive archive = new ZipArchive("memory", zip);
+        final ZipArchive.Entry entry = archive.getEntries().get(0);
+        assertEquals("a/Stored.class", entry.getName());
+        assertEquals(ZipArchive.STORED, entry.getMethod());
+
+        final ByteBuffer data = archive.read(entry, inflater);
+        assertSame(zip.array(), data.array());
+        assertEquals(content.length, data.remaining());
+        assertEquals(new String(content), new String(toArray(data)));
+    }
+
+    public void testDeflatedEntries() throws IOException {
+        final byte[] content = new byte[10000];
+        Arrays.fill(content, (byte) 'x');
+        final ZipArchive archive = new ZipArchive("memory", ByteBuffer.wrap(zip(ZipEntry.DEFLATED, content)));
+        final ZipArchive.Entry entry = archive.getEntries().get(0);
+
+        assertEquals(ZipArchive.DEFLATED, entry.getMethod());
+        assertTrue(Arrays.equals(content, toArray(archive.read(entry, inflater))));
+        assertTrue(Arrays.equals(content, toArray(archive.read(entry, inflater))));
+    }
+
+    public void testPrefixedArchive() throws IOException {
+        final File file = File.createTempFile("prefixed", ".jar");
+        try {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            bytes.write("#!/bin/sh\nexec java -jar \"$0\" \"$@\"\n".getBytes());
+            bytes.write(Files.readAllBytes(new File(getTestDataDir() + "test.jar").toPath()));
+            Files.write(file.toPath(), bytes.toByteArray());
+
+            assertSameContent(file);
+        } finally {
+            file.delete();
+        }
+    }
+
+    public void testPrefixedZip64Archive() throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write(new byte[1000]);
+        try (ZipOutputStream out = new ZipOutputStream(bytes)) {
+            out.setLevel(0);
+            for (int i = 0; i < 0x10000; i++) {
+                out.putNextEntry(new ZipEntry("a/" + i + ".class"));
+                out.write(i);
+                out.closeEntry();
+            }
+        }
+
+        final ZipArchive archive = new ZipArchive("zip64", ByteBuffer.wrap(bytes.toByteArray()));
+        assertEquals(0x10000, archive.getEntries().size());
+        final ZipArchive.Entry last = archive.getEntries().get(0xFFFF);
+        assertEquals("a/65535.class", last.getName());
+        assertEquals(0xFF, archive.read(last, inflater).get(0) & 0xFF);
+    }
+
+    public void testInvalidArchive() {
+        assertThrows(
+                IOException.class,
+                () -> new ZipArchive("bogus", ByteBuffer.wrap(new byte[100])),
+                "Should raise IOException"
+        );
+        assertThrows(
+                IOException.class,
+                () -> ZipArchive.open(new File(getTestDataDir() + "bogus.zip")),
+                "Should raise IOException"
+        );
+    }
+
+    public void testCorruptEntry() throws IOException {
+        final byte[] zip = zip(ZipEntry.DEFLATED, new byte[1000]);
+        final ZipArchive archive = new ZipArchive("corrupt", ByteBuffer.wrap(zip));
+        Arrays.fill(zip, 30 + "a/Stored.class".length(), 40 + "a/Stored.class".length(), (byte) 0xFF);
+
+        assertThrows(
+                IOException.class,
+                () -> archive.read(archive.getEntries().get(0), inflater),
+                "Should raise IOException"
+        );
+    }
+
+    public void testDeclaredSizeMismatch() throws IOException {
+        final byte[] content = new byte[100000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (i * 31 / 7);
+        }
+        for (final int declaredSize : new int[] {content.length - 1, content.length + 1, Integer.MAX_VALUE}) {
+            final byte[] zip = zip(ZipEntry.DEFLATED, content);
+            setDeclaredSize(zip, declaredSize);
+            final ZipArchive archive = new ZipArchive("mismatch", ByteBuffer.wrap(zip));
+
+            assertThrows(
+                    IOException.class,
+                    () -> archive.read(archive.getEntries().get(0), inflater),
+                    "Should raise IOException"
+            );
+        }
+    }
+
+        private void assertSameContent(final File file) throws IOException {
+        final List<String> expectedNames = new ArrayList<>();
+        try (JarFile jarFile = new JarFile(file); ZipArchive archive = ZipArchive.open(file)) {
+            final Enumeration<? extends ZipEntry> entries = jarFile.entries();
+            while (entries.hasMoreElements()) {
+                expectedNames.add(entries.nextElement().getName());
+            }
+
+            final List<String> names = new ArrayList<>();
+            for (final ZipArchive.Entry entry : archive.getEntries()) {
+                names.add(entry.getName());
+                if (!entry.isDirectory()) {
+                    try (InputStream in = jarFile.getInputStream(jarFile.getEntry(entry.getName()))) {
+                        final byte[] expected = in.readAllBytes();
+                        assertTrue(entry.getName(), Arrays.equals(expected, toArray(archive.read(entry, inflater))));
+                    }
+                }
+            }
+            assertEquals(expectedNames, names);
+        }
+    }
+
+    private static byte[] zip(final int method, final byte[] content) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(bytes)) {
+            final ZipEntry entry = new ZipEntry("a/Stored.class");
+            entry.setMethod(method);
+            if (method == ZipEntry.STORED) {
+                final CRC32 crc = new CRC32();
+                crc.update(content);
+                entry.setCrc(crc.getValue());
+                entry.setSize(content.length);
+            }
+            out.putNextEntry(entry);
+            out.write(content);
+            out.closeEntry();
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Overwrites the uncompressed size of the first entry in the central directory.
+     */
+    private static void setDeclaredSize(final byte[] zip, final int size) {
+        final ByteBuffer buffer = ByteBuffer.wrap(zip).order(ByteOrder.LITTLE_ENDIAN);
+        for (int position = 0; position + 4 <= zip.length; position++) {
+            if (buffer.getInt(position) == 0x02014b50) {
+                buffer.putInt(position + 24, size);
+                return;
+            }
+        }
+        fail("No central directory");
+    }
+
+        private static byte[] toArray(final ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+}